@@ -0,0 +1,26 @@
+package TowerOfHanoi;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchmarkMain:  Runs the benchmarks with the GC profiler on so the allocation rate is reported with the
+ *    timings.   Takes the usual JMH command line, for example
+ *
+ *        java -jar benchmarks/target/benchmarks.jar SolveBenchmark -p problem=5x20,10x20/FrameStewart
+ */
+public class BenchmarkMain
+{
+    public static void main( String[] args ) throws Exception
+    {
+        Options options = new OptionsBuilder()
+                .parent( new CommandLineOptions( args ))
+                .addProfiler( GCProfiler.class )
+                .build();
+
+        new Runner( options ).run();
+    }
+}
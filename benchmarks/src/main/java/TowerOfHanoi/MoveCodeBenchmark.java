@@ -0,0 +1,81 @@
+package TowerOfHanoi;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MoveCodeBenchmark:  Times filling a buffer with 3 tower move codes, with the Vector API kernel and with
+ *    the scalar one.   Each operation is one move, so the score is moves per second.   The fork adds the
+ *    jdk.incubator.vector module, without it the vector kernel falls back to the scalar one.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" } )
+public class MoveCodeBenchmark
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    @Param( { "40" } )
+    public int disks;
+
+    private MoveCodeKernel vectorKernel;
+    private MoveCodeKernel scalarKernel;
+    private final byte[] codes = new byte[BUFFER_SIZE];
+    private long nextMove;
+
+    @Setup( Level.Trial )
+    public void createKernels()
+    {
+        vectorKernel = MoveCodeKernel.create( disks, 1, 2, 3 );
+        scalarKernel = new MoveCodeKernel( disks, 1, 2, 3 );
+
+        if ( !vectorKernel.isVectorized() )
+            System.err.println( "The Vector API isn't available, both kernels are scalar" );
+    }
+
+    @Setup( Level.Iteration )
+    public void rewind()
+    {
+        nextMove = 1;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( BUFFER_SIZE )
+    public byte[] vector()
+    {
+        return fill( vectorKernel );
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( BUFFER_SIZE )
+    public byte[] scalar()
+    {
+        return fill( scalarKernel );
+    }
+
+    private byte[] fill( MoveCodeKernel kernel )
+    {
+        if ( nextMove > kernel.getMoveCount() - BUFFER_SIZE )
+            nextMove = 1;
+
+        kernel.fill( nextMove, codes, 0, BUFFER_SIZE );
+        nextMove += BUFFER_SIZE;
+        return codes;
+    }
+}
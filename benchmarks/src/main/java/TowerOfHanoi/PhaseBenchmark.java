@@ -0,0 +1,114 @@
+package TowerOfHanoi;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PhaseBenchmark:  Times the phases of a BufferHanoiUnbuffer solve on their own.   Each phase has its own
+ *    state that works out the configuration the phase starts from once, and puts the disks back there with
+ *    setConfiguration() before every shot, so only the phase itself is timed.   A phase can only run once
+ *    from its start, so each iteration is a single shot.
+ *
+ *    The problems are the pairs of the usual grid that solve with BufferHanoiUnbuffer in 16M moves or less.
+ */
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 20 )
+@Measurement( iterations = 50 )
+@Fork( 1 )
+public class PhaseBenchmark
+{
+    /** A Hanoi and the configuration one of its phases starts from */
+    @State( Scope.Thread )
+    public abstract static class Phase
+    {
+        // TOWERSxDISKS
+        @Param( { "5x20", "5x25", "5x30", "6x25", "6x30", "6x35", "7x30", "7x35", "7x40", "8x35", "8x40", "9x40" } )
+        public String problem;
+
+        @Param( { "TowerList", "Primitive" } )
+        public Hanoi.EngineType engine;
+
+        int towers;
+        Hanoi hanoi;
+        private int[] start;
+
+        @Setup( Level.Trial )
+        public void findStart()
+        {
+            String[] size = problem.split( "x" );
+            towers = Integer.parseInt( size[0] );
+
+            hanoi = new Hanoi( towers, Integer.parseInt( size[1] ), engine );
+            hanoi.setMoveSink( new CountingMoveSink() );
+            runEarlierPhases();
+            start = hanoi.getConfiguration();
+        }
+
+        @Setup( Level.Iteration )
+        public void reset()
+        {
+            hanoi.setConfiguration( start );
+        }
+
+        /** Makes the moves of the phases before this one */
+        abstract void runEarlierPhases();
+    }
+
+    public static class Buffering extends Phase
+    {
+        void runEarlierPhases()
+        {
+        }
+    }
+
+    public static class HanoiPhase extends Phase
+    {
+        void runEarlierPhases()
+        {
+            hanoi.bufferDisks();
+        }
+    }
+
+    public static class Unbuffering extends Phase
+    {
+        void runEarlierPhases()
+        {
+            hanoi.bufferDisks();
+            hanoi.processTowerHanoi( 1, towers - 1, towers );
+        }
+    }
+
+    @Benchmark
+    public Hanoi bufferDisks( Buffering phase )
+    {
+        phase.hanoi.bufferDisks();
+        return phase.hanoi;
+    }
+
+    @Benchmark
+    public Hanoi processTowerHanoi( HanoiPhase phase )
+    {
+        phase.hanoi.processTowerHanoi( 1, phase.towers - 1, phase.towers );
+        return phase.hanoi;
+    }
+
+    @Benchmark
+    public Hanoi processBufferedDisks( Unbuffering phase )
+    {
+        phase.hanoi.processBufferedDisks();
+        return phase.hanoi;
+    }
+}
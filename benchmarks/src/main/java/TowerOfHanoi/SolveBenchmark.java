@@ -0,0 +1,107 @@
+package TowerOfHanoi;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SolveBenchmark:  Times a whole Hanoi.solve() over the grid of towers and disks for each engine.   Moves
+ *    go to a CountingMoveSink so nothing is printed.   The moves counter reports moves per second next to
+ *    the time per solve, time per move is one over it.
+ *
+ *    The Hanoi is built once per trial and each call puts its disks back on the first tower with
+ *    setConfiguration() before solving, so building the towers and disks isn't timed.   Putting them back
+ *    is O( disks ) and is timed with the solve.
+ *
+ *    The grid is the towers and disks pairs of 16M moves or less, with Frame-Stewart on 4 towers or more.
+ *    Other problems can be given with -p problem=TOWERSxDISKS[/SOLUTION].
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class SolveBenchmark
+{
+    // TOWERSxDISKS with the solution calculateSolutionsType() picks, or TOWERSxDISKS/SOLUTION for a SolutionType
+    @Param( { "3x3", "3x5", "3x10", "3x15", "3x20",
+               "4x3", "4x5", "4x10", "4x15", "4x20", "4x25",
+               "5x3", "5x5", "5x10", "5x15", "5x20", "5x25", "5x30",
+               "6x3", "6x5", "6x10", "6x15", "6x20", "6x25", "6x30", "6x35",
+               "7x3", "7x5", "7x10", "7x15", "7x20", "7x25", "7x30", "7x35", "7x40",
+               "8x3", "8x5", "8x10", "8x15", "8x20", "8x25", "8x30", "8x35", "8x40",
+               "9x3", "9x5", "9x10", "9x15", "9x20", "9x25", "9x30", "9x35", "9x40",
+               "10x3", "10x5", "10x10", "10x15", "10x20", "10x25", "10x30", "10x35", "10x40",
+               "4x3/FrameStewart", "4x5/FrameStewart", "4x10/FrameStewart", "4x15/FrameStewart", "4x20/FrameStewart",
+               "4x25/FrameStewart", "4x30/FrameStewart", "4x35/FrameStewart", "4x40/FrameStewart",
+               "5x3/FrameStewart", "5x5/FrameStewart", "5x10/FrameStewart", "5x15/FrameStewart", "5x20/FrameStewart",
+               "5x25/FrameStewart", "5x30/FrameStewart", "5x35/FrameStewart", "5x40/FrameStewart",
+               "6x3/FrameStewart", "6x5/FrameStewart", "6x10/FrameStewart", "6x15/FrameStewart", "6x20/FrameStewart",
+               "6x25/FrameStewart", "6x30/FrameStewart", "6x35/FrameStewart", "6x40/FrameStewart",
+               "7x3/FrameStewart", "7x5/FrameStewart", "7x10/FrameStewart", "7x15/FrameStewart", "7x20/FrameStewart",
+               "7x25/FrameStewart", "7x30/FrameStewart", "7x35/FrameStewart", "7x40/FrameStewart",
+               "8x3/FrameStewart", "8x5/FrameStewart", "8x10/FrameStewart", "8x15/FrameStewart", "8x20/FrameStewart",
+               "8x25/FrameStewart", "8x30/FrameStewart", "8x35/FrameStewart", "8x40/FrameStewart",
+               "9x3/FrameStewart", "9x5/FrameStewart", "9x10/FrameStewart", "9x15/FrameStewart", "9x20/FrameStewart",
+               "9x25/FrameStewart", "9x30/FrameStewart", "9x35/FrameStewart", "9x40/FrameStewart",
+               "10x3/FrameStewart", "10x5/FrameStewart", "10x10/FrameStewart", "10x15/FrameStewart", "10x20/FrameStewart",
+               "10x25/FrameStewart", "10x30/FrameStewart", "10x35/FrameStewart", "10x40/FrameStewart" } )
+    public String problem;
+
+    @Param( { "TowerList", "Primitive" } )
+    public Hanoi.EngineType engine;
+
+    private Hanoi hanoi;
+    private int[] start;
+
+    /** Counts the moves made so JMH reports them per second */
+    @State( Scope.Thread )
+    @AuxCounters( AuxCounters.Type.OPERATIONS )
+    public static class MoveCounter
+    {
+        public long moves;
+
+        @Setup( Level.Iteration )
+        public void reset()
+        {
+            moves = 0;
+        }
+    }
+
+    @Setup( Level.Trial )
+    public void buildHanoi()
+    {
+        String[] parts = problem.split( "/" );
+        String[] size = parts[0].split( "x" );
+
+        hanoi = new Hanoi( Integer.parseInt( size[0] ), Integer.parseInt( size[1] ), engine );
+        if ( parts.length > 1 )
+            hanoi.setSolutionMethod( Hanoi.SolutionType.valueOf( parts[1] ));
+        hanoi.setMoveSink( new CountingMoveSink() );
+
+        start = hanoi.getConfiguration();
+    }
+
+    @Benchmark
+    public long solve( MoveCounter counter )
+    {
+        hanoi.setConfiguration( start );
+        hanoi.solve();
+
+        counter.moves += hanoi.getMoveCount();
+        return hanoi.getMoveCount();
+    }
+}
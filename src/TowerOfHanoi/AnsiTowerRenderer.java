@@ -0,0 +1,247 @@
+package TowerOfHanoi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * AnsiTowerRenderer:  Animates the towers on an ANSI terminal as the moves come in.   The picture is kept
+ *    in a char grid laid out like Hanoi.display( true ).   A move only changes two cells of the grid, and
+ *    only the cells changed since the last frame are sent, each as a cursor position followed by the cell.
+ *    Frames are limited to a frame rate.  When moves come faster than that, the frames in between are
+ *    skipped and the next frame sends the latest state of the cells that changed.
+ *
+ *    Expects the disks to start on tower 1 like a new Hanoi instance.   Nothing is allocated per move.
+ */
+public class AnsiTowerRenderer implements MoveSink
+{
+    public static final int DEFAULT_FRAMES_PER_SECOND = 30;
+
+    private static final int HEADER_LINES = 3;           // Title, tower numbers and tops
+
+    private final OutputStream out;
+    private final int towerCount;
+    private final int diskCount;
+    private final int idWidth;
+    private final int cellWidth;
+    private final long frameNanos;
+
+    private final char[][] grid;             // [row][column], row 0 is the top of the tallest pile
+    private final int[] towerHeight;
+    private final boolean[] dirty;           // Indexed by row * towerCount + tower - 1
+    private final int[] dirtyCells;
+    private int dirtyCount = 0;
+
+    private final byte[] buffer;
+    private int position = 0;
+    private long lastFrameNanos;
+
+    public AnsiTowerRenderer( OutputStream out, int towerCount, int diskCount )
+    {
+        this( out, towerCount, diskCount, DEFAULT_FRAMES_PER_SECOND );
+    }
+
+    /**
+     * @param out              The terminal
+     * @param towerCount       Towers in the system
+     * @param diskCount        Disks in the system, all starting on tower 1
+     * @param framesPerSecond  The most frames to draw a second
+     */
+    public AnsiTowerRenderer( OutputStream out, int towerCount, int diskCount, int framesPerSecond )
+    {
+        this.out = out;
+        this.towerCount = towerCount;
+        this.diskCount = diskCount;
+        this.idWidth = Math.max( 2, Integer.toString( Math.max( diskCount, towerCount )).length() );
+        this.cellWidth = idWidth + 5;
+        this.frameNanos = 1000000000L / Math.max( 1, framesPerSecond );
+
+        grid = new char[diskCount][towerCount * cellWidth];
+        towerHeight = new int[towerCount + 1];
+        dirty = new boolean[diskCount * towerCount];
+        dirtyCells = new int[diskCount * towerCount];
+
+        // Room for a whole frame of cells, each with its cursor position
+        buffer = new byte[Math.max( 1 << 12, Math.min( 1 << 20, dirtyCells.length * ( cellWidth + 16 )))];
+
+        for ( char[] row : grid )
+            Arrays.fill( row, ' ' );
+        for ( int d = diskCount; d >= 1; d-- )
+            setCell( 1, ++towerHeight[1], d );
+        dirtyCount = 0;
+        Arrays.fill( dirty, false );
+
+        drawAll();
+    }
+
+    public void move( int diskId, int fromTowerId, int toTowerId )
+    {
+        setCell( fromTowerId, towerHeight[fromTowerId]--, 0 );
+        setCell( toTowerId, ++towerHeight[toTowerId], diskId );
+
+        long now = System.nanoTime();
+        if ( now - lastFrameNanos >= frameNanos )
+        {
+            drawChanges();
+            lastFrameNanos = now;
+        }
+    }
+
+    /** Draws what has changed and leaves the cursor under the towers */
+    public void flush()
+    {
+        drawChanges();
+        putCursor( HEADER_LINES + diskCount + 1, 1 );
+        writeBuffer();
+        try
+        {
+            out.flush();
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /** Puts a disk, or blanks when the disk is 0, at a height on a tower and marks the cell changed */
+    private void setCell( int towerId, int height, int diskId )
+    {
+        int row = diskCount - height;
+        int column = ( towerId - 1 ) * cellWidth;
+        char[] line = grid[row];
+
+        // Right justify the id in idWidth + 1 characters like display() does
+        int value = diskId;
+        for ( int c = column + idWidth; c >= column; c-- )
+        {
+            if ( value > 0 )
+            {
+                line[c] = (char)( '0' + ( value % 10 ));
+                value /= 10;
+            }
+            else
+            {
+                line[c] = ' ';
+            }
+        }
+
+        int cell = row * towerCount + towerId - 1;
+        if ( !dirty[cell] )
+        {
+            dirty[cell] = true;
+            dirtyCells[dirtyCount++] = cell;
+        }
+    }
+
+    /** Clears the screen and draws everything */
+    private void drawAll()
+    {
+        putText( "\u001b[2J" );
+        putCursor( 1, 1 );
+        putText( "Towers: " + towerCount + "  Disks: " + diskCount );
+
+        putCursor( 2, 1 );
+        for ( int t = 1; t <= towerCount; t++ )
+            putText( String.format( "%" + ( idWidth + 1 ) + "d    ", t ));
+
+        putCursor( 3, 1 );
+        String top = "-".repeat( idWidth + 2 ) + "   ";
+        for ( int t = 1; t <= towerCount; t++ )
+            putText( top );
+
+        for ( int row = 0; row < diskCount; row++ )
+        {
+            putCursor( HEADER_LINES + 1 + row, 1 );
+            putChars( grid[row], 0, grid[row].length );
+        }
+
+        writeBuffer();
+        lastFrameNanos = System.nanoTime();
+    }
+
+    /** Sends the cells changed since the last frame */
+    private void drawChanges()
+    {
+        for ( int i = 0; i < dirtyCount; i++ )
+        {
+            int cell = dirtyCells[i];
+            int row = cell / towerCount;
+            int column = ( cell % towerCount ) * cellWidth;
+
+            if ( position + cellWidth + 24 > buffer.length )
+                writeBuffer();
+
+            putCursor( HEADER_LINES + 1 + row, column + 1 );
+            putChars( grid[row], column, idWidth + 1 );
+            dirty[cell] = false;
+        }
+        dirtyCount = 0;
+        writeBuffer();
+    }
+
+    /** ESC [ line ; column H */
+    private void putCursor( int line, int column )
+    {
+        if ( position + 24 > buffer.length )
+            writeBuffer();
+
+        buffer[position++] = 0x1b;
+        buffer[position++] = '[';
+        putInt( line );
+        buffer[position++] = ';';
+        putInt( column );
+        buffer[position++] = 'H';
+    }
+
+    private void putInt( int value )
+    {
+        int digits = 1;
+        for ( int v = value; v >= 10; v /= 10 )
+            digits++;
+
+        for ( int i = position + digits - 1; i >= position; i-- )
+        {
+            buffer[i] = (byte)( '0' + ( value % 10 ));
+            value /= 10;
+        }
+        position += digits;
+    }
+
+    private void putChars( char[] chars, int start, int length )
+    {
+        for ( int i = 0; i < length; i++ )
+        {
+            if ( position == buffer.length )
+                writeBuffer();
+            buffer[position++] = (byte)chars[start + i];
+        }
+    }
+
+    private void putText( String text )
+    {
+        for ( int i = 0; i < text.length(); i++ )
+        {
+            if ( position == buffer.length )
+                writeBuffer();
+            buffer[position++] = (byte)text.charAt( i );
+        }
+    }
+
+    private void writeBuffer()
+    {
+        if ( position == 0 )
+            return;
+
+        try
+        {
+            out.write( buffer, 0, position );
+            out.flush();
+            position = 0;
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+}
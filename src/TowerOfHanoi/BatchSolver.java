@@ -0,0 +1,244 @@
+package TowerOfHanoi;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * BatchSolver:  Solves many ( towers, disks ) jobs at once without any prompting.   Each job gets its own
+ *    Hanoi instance on the primitive engine with its moves counted rather than printed, and runs on its own
+ *    virtual thread.   A semaphore caps how many solve at the same time.   A summary line is written for
+ *    each job in the order the jobs were given.
+ *
+ *    Jobs come from the command line as TOWERSxDISKS, for example 5x20, or from a job file with one
+ *    "towers disks" pair per line.   Blank lines and lines starting with # are skipped.
+ *
+ *    With a SolutionCache, repeated jobs replay the solution kept by the first one.
+ */
+public class BatchSolver
+{
+    /** One problem to solve */
+    public static class Job
+    {
+        public final int towers;
+        public final int disks;
+
+        public Job( int towers, int disks )
+        {
+            this.towers = towers;
+            this.disks = disks;
+        }
+    }
+
+    /** How a job went */
+    public static class JobResult
+    {
+        public final Job job;
+        public final Hanoi.SolutionType solutionType;
+        public final long moveCount;
+        public final long wallMillis;
+        public final boolean success;
+
+        JobResult( Job job, Hanoi.SolutionType solutionType, long moveCount, long wallMillis, boolean success )
+        {
+            this.job = job;
+            this.solutionType = solutionType;
+            this.moveCount = moveCount;
+            this.wallMillis = wallMillis;
+            this.success = success;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Towers: " + job.towers + "  Disks: " + job.disks + "  Solution: " + solutionType
+                   + "  Moves: " + moveCount + "  Millis: " + wallMillis + ( success ? "" : "  FAILED" );
+        }
+    }
+
+    private final int parallelism;
+    private SolutionCache solutionCache = null;
+
+    /** @param parallelism  The most jobs solving at the same time */
+    public BatchSolver( int parallelism )
+    {
+        if ( parallelism < 1 )
+            throw new IllegalArgumentException( "Parallelism must be positive: " + parallelism );
+
+        this.parallelism = parallelism;
+    }
+
+    /** Shares a cache of solutions between the jobs.  Null turns it off. */
+    public void setSolutionCache( SolutionCache solutionCache )
+    {
+        this.solutionCache = solutionCache;
+    }
+
+    /**
+     * Solves the jobs and writes a summary line for each as they finish, in job order.
+     *
+     * @param jobs   The problems to solve
+     * @param out    Where the summary lines go.  Null for none.
+     * @return The results in job order
+     */
+    public List<JobResult> solveAll( List<Job> jobs, PrintStream out ) throws InterruptedException
+    {
+        Semaphore permits = new Semaphore( parallelism );
+        List<Future<JobResult>> futures = new ArrayList<Future<JobResult>>();
+        List<JobResult> results = new ArrayList<JobResult>();
+
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor( parallelism );
+        try
+        {
+            for ( Job job : jobs )
+            {
+                futures.add( executor.submit( () -> {
+                    permits.acquire();
+                    try
+                    {
+                        return solve( job, solutionCache );
+                    }
+                    finally
+                    {
+                        permits.release();
+                    }
+                } ));
+            }
+
+            for ( Future<JobResult> future : futures )
+            {
+                JobResult result = future.get();
+                results.add( result );
+
+                if ( out != null )
+                    out.println( result );
+            }
+        }
+        catch ( ExecutionException e )
+        {
+            throw new IllegalStateException( "Batch job failed", e.getCause() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        return results;
+    }
+
+    /** Solves one job on the calling thread
+     *
+     * @param job             The problem to solve
+     * @param solutionCache   Where solutions are replayed from and kept, null for none
+     */
+    public static JobResult solve( Job job, SolutionCache solutionCache )
+    {
+        long start = System.nanoTime();
+
+        Hanoi hanoi = new Hanoi( job.towers, job.disks, Hanoi.EngineType.Primitive );
+        CountingMoveSink moves = new CountingMoveSink();
+        hanoi.setMoveSink( moves );
+        hanoi.setSolutionCache( solutionCache );
+
+        boolean success = hanoi.solve();
+
+        return new JobResult( job, hanoi.getSolutionMethod(), moves.getMoveCount(),
+                              ( System.nanoTime() - start ) / 1000000, success );
+    }
+
+    /** Reads the jobs from a file of "towers disks" lines */
+    public static List<Job> readJobs( Path jobFile ) throws IOException
+    {
+        List<Job> jobs = new ArrayList<Job>();
+
+        for ( String line : Files.readAllLines( jobFile ))
+        {
+            line = line.trim();
+            if ( line.isEmpty() || line.startsWith( "#" ))
+                continue;
+
+            jobs.add( parseJob( line ));
+        }
+        return jobs;
+    }
+
+    /** Reads a job written as "towers disks", "towers,disks" or "towersxdisks" */
+    public static Job parseJob( String text )
+    {
+        String[] parts = text.trim().split( "[\\s,xX]+" );
+
+        if ( parts.length != 2 )
+            throw new IllegalArgumentException( "Bad job, expected towers and disks: " + text );
+
+        int towers = Integer.parseInt( parts[0] );
+        int disks = Integer.parseInt( parts[1] );
+
+        if ( towers < 3 || disks < 1 )
+            throw new IllegalArgumentException( "Bad job, need 3 or more towers and a disk: " + text );
+
+        return new Job( towers, disks );
+    }
+
+    /**
+     * Runs a batch from the command line:
+     *     --batch [--parallel N] [--cache-mb MB] [--jobs FILE] [TOWERSxDISKS ...]
+     *
+     * @return The exit code, 0 when every job solved
+     */
+    public static int run( String[] args )
+    {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        long cacheMegabytes = 0;
+        List<Job> jobs = new ArrayList<Job>();
+
+        try
+        {
+            for ( int i = 0; i < args.length; i++ )
+            {
+                if ( args[i].equals( "--batch" ))
+                    continue;
+                else if ( args[i].equals( "--parallel" ))
+                    parallelism = Integer.parseInt( args[++i] );
+                else if ( args[i].equals( "--cache-mb" ))
+                    cacheMegabytes = Long.parseLong( args[++i] );
+                else if ( args[i].equals( "--jobs" ))
+                    jobs.addAll( readJobs( Paths.get( args[++i] )));
+                else
+                    jobs.add( parseJob( args[i] ));
+            }
+        }
+        catch ( Exception e )
+        {
+            System.err.println( "Bad batch arguments: " + e.getMessage() );
+            System.err.println( "Usage: --batch [--parallel N] [--cache-mb MB] [--jobs FILE] [TOWERSxDISKS ...]" );
+            return 2;
+        }
+
+        try
+        {
+            boolean allSolved = true;
+            BatchSolver solver = new BatchSolver( parallelism );
+
+            if ( cacheMegabytes > 0 )
+                solver.setSolutionCache( new SolutionCache( cacheMegabytes << 20 ));
+
+            for ( JobResult result : solver.solveAll( jobs, System.out ))
+                allSolved &= result.success;
+
+            return allSolved ? 0 : 1;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package TowerOfHanoi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * BufferedTextMoveSink:  Writes the same lines as the ConsoleMoveSink, but encodes them straight into a
+ *    reused byte buffer and writes the buffer out in large blocks.   Nothing is allocated per move.
+ *    Ids are written without the thousands grouping MessageFormat would add.   Given a MoveScheduler's
+ *    schedule, each step's moves follow a "STEP n" line.
+ */
+public class BufferedTextMoveSink implements MoveScheduler.StepSink
+{
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private static final byte[] DISK_TEXT = "MOVING Disk:".getBytes();
+    private static final byte[] FROM_TEXT = " From Tower:".getBytes();
+    private static final byte[] TO_TEXT = " To Tower:".getBytes();
+    private static final byte[] STEP_TEXT = "STEP ".getBytes();
+    private static final byte[] LINE_END = System.lineSeparator().getBytes();
+
+    // Room for the text, three ids and the line end
+    private static final int MAX_LINE_LENGTH = DISK_TEXT.length + FROM_TEXT.length + TO_TEXT.length
+                                               + 3 * 10 + LINE_END.length;
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int position = 0;
+    private long written;                 // Bytes handed to the stream, counting from the start of the output
+
+    public BufferedTextMoveSink( OutputStream out )
+    {
+        this( out, DEFAULT_BUFFER_SIZE );
+    }
+
+    public BufferedTextMoveSink( OutputStream out, int bufferSize )
+    {
+        this( out, bufferSize, 0 );
+    }
+
+    /**
+     * @param out              Where the lines are written
+     * @param bufferSize       Bytes held before writing them out
+     * @param outputPosition   Bytes already in the output when it is carried on from a checkpoint
+     */
+    public BufferedTextMoveSink( OutputStream out, int bufferSize, long outputPosition )
+    {
+        this.out = out;
+        this.buffer = new byte[Math.max( bufferSize, MAX_LINE_LENGTH )];
+        this.written = outputPosition;
+    }
+
+    public void move( int diskId, int fromTowerId, int toTowerId )
+    {
+        if ( position + MAX_LINE_LENGTH > buffer.length )
+            writeBuffer();
+
+        putBytes( DISK_TEXT );
+        putNumber( diskId );
+        putBytes( FROM_TEXT );
+        putNumber( fromTowerId );
+        putBytes( TO_TEXT );
+        putNumber( toTowerId );
+        putBytes( LINE_END );
+    }
+
+    public void startStep( long step )
+    {
+        if ( position + MAX_LINE_LENGTH > buffer.length )
+            writeBuffer();
+
+        putBytes( STEP_TEXT );
+        putNumber( step );
+        putBytes( LINE_END );
+    }
+
+    /** Writes out whatever is buffered and flushes the underlying stream */
+    public void flush()
+    {
+        writeBuffer();
+        try
+        {
+            out.flush();
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    public long getOutputPosition()
+    {
+        return written + position;
+    }
+
+    /** Hands the filled part of the buffer to the stream and starts the buffer over */
+    private void writeBuffer()
+    {
+        try
+        {
+            out.write( buffer, 0, position );
+            written += position;
+            position = 0;
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    private void putBytes( byte[] text )
+    {
+        System.arraycopy( text, 0, buffer, position, text.length );
+        position += text.length;
+    }
+
+    /** Encodes the digits of a disk, tower or step number into the buffer.  They are never negative. */
+    private void putNumber( long value )
+    {
+        // Find how many digits we need, then fill them in from the right
+        int digits = 1;
+        for ( long v = value; v >= 10; v /= 10 )
+            digits++;
+
+        for ( int i = position + digits - 1; i >= position; i-- )
+        {
+            buffer[i] = (byte)( '0' + ( value % 10 ));
+            value /= 10;
+        }
+        position += digits;
+    }
+}
@@ -0,0 +1,142 @@
+package TowerOfHanoi;
+
+import java.util.Arrays;
+
+/**
+ * CompactSolution:  A move sequence kept as two bytes a move, the from tower and the to tower.   The disks
+ *    are not kept, each move takes the top disk of its from tower.   Replaying it through a tower map gives
+ *    the same solution between other towers.
+ */
+public class CompactSolution
+{
+    public static final int MAX_TOWERS = 255;
+
+    private final int towerCount;
+    private final int diskCount;
+    private final byte[] moves;         // from, to, from, to, ...  as unsigned bytes
+    private final int moveCount;
+
+    private CompactSolution( int towerCount, int diskCount, byte[] moves, int moveCount )
+    {
+        this.towerCount = towerCount;
+        this.diskCount = diskCount;
+        this.moves = moves;
+        this.moveCount = moveCount;
+    }
+
+    /**
+     * Builds the 3 tower solution for moving a pile from tower 1 to tower 3, the same moves as
+     *   processTowerHanoi( 1, 2, 3 ), without simulating the towers.
+     *
+     * @param diskCount   Disks in the pile
+     * @return The solution or null when it has more than maxMoves moves
+     */
+    public static CompactSolution traditionalHanoi( int diskCount, long maxMoves )
+    {
+        TraditionalHanoiIndex index = new TraditionalHanoiIndex( diskCount );
+
+        if ( index.getMoveCount() > maxMoves || index.getMoveCount() > Integer.MAX_VALUE / 2 )
+            return null;
+
+        Builder builder = new Builder( 3, diskCount, index.getMoveCount() );
+        if ( index.getMoveCount() > 0 )
+            index.generate( 1, index.getMoveCount(), builder );
+
+        return builder.build();
+    }
+
+    public int getTowerCount()
+    {
+        return towerCount;
+    }
+
+    public int getDiskCount()
+    {
+        return diskCount;
+    }
+
+    public int getMoveCount()
+    {
+        return moveCount;
+    }
+
+    /** @return The from tower of move i, counting from 0 */
+    public int getFromTower( int i )
+    {
+        return moves[2 * i] & 0xFF;
+    }
+
+    /** @return The to tower of move i, counting from 0 */
+    public int getToTower( int i )
+    {
+        return moves[2 * i + 1] & 0xFF;
+    }
+
+    /** @return About how much memory the solution takes */
+    public long getSizeInBytes()
+    {
+        return moves.length + 32;
+    }
+
+    /** Records moves into a growing byte array until a limit is hit */
+    public static class Builder implements MoveSink
+    {
+        private final int towerCount;
+        private final int diskCount;
+        private final long maxMoves;
+        private byte[] moves;
+        private int moveCount = 0;
+        private boolean overflowed = false;
+
+        /**
+         * @param towerCount   Towers in the system, at most MAX_TOWERS
+         * @param diskCount    Disks in the system
+         * @param maxMoves     Moves to keep before giving up on the recording
+         */
+        public Builder( int towerCount, int diskCount, long maxMoves )
+        {
+            this.towerCount = towerCount;
+            this.diskCount = diskCount;
+            this.maxMoves = Math.min( maxMoves, Integer.MAX_VALUE / 2 );
+            this.moves = new byte[(int)Math.min( 2 * this.maxMoves, 1024 )];
+
+            overflowed = ( towerCount > MAX_TOWERS );
+        }
+
+        public void move( int diskId, int fromTowerId, int toTowerId )
+        {
+            if ( overflowed )
+                return;
+
+            if ( moveCount >= maxMoves )
+            {
+                // Too big to keep, let the memory go
+                overflowed = true;
+                moves = null;
+                return;
+            }
+
+            if ( 2 * moveCount + 2 > moves.length )
+                moves = Arrays.copyOf( moves, (int)Math.min( 2L * moves.length + 2, 2 * maxMoves ));
+
+            moves[2 * moveCount] = (byte)fromTowerId;
+            moves[2 * moveCount + 1] = (byte)toTowerId;
+            moveCount++;
+        }
+
+        /** @return True when the moves went past the limit and were dropped */
+        public boolean isOverflowed()
+        {
+            return overflowed;
+        }
+
+        /** @return The recorded solution, null when it overflowed */
+        public CompactSolution build()
+        {
+            if ( overflowed )
+                return null;
+
+            return new CompactSolution( towerCount, diskCount, Arrays.copyOf( moves, 2 * moveCount ), moveCount );
+        }
+    }
+}
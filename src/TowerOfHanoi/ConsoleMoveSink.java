@@ -0,0 +1,19 @@
+package TowerOfHanoi;
+
+import java.text.MessageFormat;
+
+/**
+ * ConsoleMoveSink:  Prints each move to stdout as it happens.   This is the original Hanoi output.
+ */
+public class ConsoleMoveSink implements MoveSink
+{
+    /** Display the info about a disk move
+     *
+     */
+    public void move( int diskId, int fromTowerId, int toTowerId )
+    {
+        System.out.println(MessageFormat.format("MOVING Disk:{0} From Tower:{1} To Tower:{2}",
+                                                   diskId, fromTowerId, toTowerId)
+        );
+    }
+}
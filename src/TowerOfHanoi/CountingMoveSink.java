@@ -0,0 +1,26 @@
+package TowerOfHanoi;
+
+/**
+ * CountingMoveSink:  Throws the moves away and only keeps count of them.
+ */
+public class CountingMoveSink implements MoveSink
+{
+    private long moveCount = 0;
+
+    public void move( int diskId, int fromTowerId, int toTowerId )
+    {
+        moveCount++;
+    }
+
+    /** @return The number of moves reported so far. */
+    public long getMoveCount()
+    {
+        return moveCount;
+    }
+
+    /** Starts the count over at zero */
+    public void reset()
+    {
+        moveCount = 0;
+    }
+}
@@ -22,7 +22,7 @@ public class Disk {
         this.lastTowerID = lastTowerID;
     }
 
-       public Integer getId()
+       public int getId()
     {
         return id;
     }
@@ -0,0 +1,140 @@
+package TowerOfHanoi;
+
+/**
+ * FrameStewartPlanner:  Table of the Frame-Stewart split points for moving a pile of disks with more than
+ *    three towers.   To move n disks with t towers, the top k disks are moved to a spare tower using all
+ *    t towers, the other n - k disks are moved to the destination using the t - 1 towers left and the
+ *    k disks are moved on top of them using all t towers again.   The k giving the fewest moves is kept
+ *    for every ( disks, towers ) pair.
+ *
+ *    The table is filled in iteratively and grown as larger problems are asked for.  It is shared by every
+ *    Hanoi instance in the JVM so it is only ever calculated once.   Move counts too large for a long are
+ *    held at Long.MAX_VALUE.
+ */
+public class FrameStewartPlanner
+{
+    private static final long UNSOLVABLE = Long.MAX_VALUE;
+
+    /** The move counts and splits worked out so far.  Never changed once published. */
+    private static final class Table
+    {
+        // Indexed by [towers][disks]
+        final long[][] moves;
+        final int[][] split;
+
+        Table( long[][] moves, int[][] split )
+        {
+            this.moves = moves;
+            this.split = split;
+        }
+
+        boolean covers( int disks, int towers )
+        {
+            return towers < moves.length && disks < moves[towers].length;
+        }
+    }
+
+    // Read without a lock, replaced by a larger table under the lock
+    private static volatile Table table = new Table( new long[0][], new int[0][] );
+
+    private FrameStewartPlanner()
+    {
+    }
+
+    /**
+     * @param disks   Disks in the pile
+     * @param towers  Towers that can be used, including the source and destination
+     * @return  The number of disks to move aside first.  The pile is split into these and the rest.
+     */
+    public static int getSplit( int disks, int towers )
+    {
+        return getTable( disks, towers ).split[towers][disks];
+    }
+
+    /**
+     * @param disks   Disks in the pile
+     * @param towers  Towers that can be used, including the source and destination
+     * @return  The number of moves to move the pile.  Long.MAX_VALUE when it is too large to count or
+     *            can't be done.
+     */
+    public static long getMoveCount( int disks, int towers )
+    {
+        return getTable( disks, towers ).moves[towers][disks];
+    }
+
+    /** @return A table covering at least this many disks and towers */
+    private static Table getTable( int disks, int towers )
+    {
+        if ( disks < 0 || towers < 0 )
+            throw new IllegalArgumentException( "Bad pile: " + disks + " disks on " + towers + " towers" );
+
+        Table current = table;
+        if ( current.covers( disks, towers ))
+            return current;
+
+        return growTable( disks, towers );
+    }
+
+    /** Works out a table large enough and publishes it, unless another thread already has */
+    private static synchronized Table growTable( int disks, int towers )
+    {
+        Table current = table;
+        if ( current.covers( disks, towers ))
+            return current;
+
+        int maxTowers = Math.max( towers, current.moves.length - 1 );
+        int maxDisks = Math.max( disks, ( current.moves.length == 0 ) ? 0 : current.moves[0].length - 1 );
+
+        long[][] moves = new long[maxTowers + 1][maxDisks + 1];
+        int[][] split = new int[maxTowers + 1][maxDisks + 1];
+
+        for ( int t = 0; t <= maxTowers; t++ )
+        {
+            for ( int n = 1; n <= maxDisks; n++ )
+            {
+                if ( n == 1 && t >= 2 )
+                {
+                    moves[t][n] = 1;
+                }
+                else if ( t <= 2 )
+                {
+                    // Nowhere to put the disks aside
+                    moves[t][n] = UNSOLVABLE;
+                }
+                else
+                {
+                    // Try every split and keep the cheapest
+                    long best = UNSOLVABLE;
+                    int bestSplit = n - 1;
+
+                    for ( int k = 1; k < n; k++ )
+                    {
+                        long count = addMoves( addMoves( moves[t][k], moves[t][k] ), moves[t - 1][n - k] );
+
+                        if ( count < best )
+                        {
+                            best = count;
+                            bestSplit = k;
+                        }
+                    }
+                    moves[t][n] = best;
+                    split[t][n] = bestSplit;
+                }
+            }
+        }
+
+        // Publish the new tables together
+        current = new Table( moves, split );
+        table = current;
+        return current;
+    }
+
+    /** Adds move counts holding anything too large at Long.MAX_VALUE */
+    private static long addMoves( long a, long b )
+    {
+        if ( a == UNSOLVABLE || b == UNSOLVABLE || a > UNSOLVABLE - b )
+            return UNSOLVABLE;
+
+        return a + b;
+    }
+}
@@ -1,25 +1,52 @@
 package TowerOfHanoi;
 
-
-import java.text.MessageFormat;
-import static java.lang.Math.pow;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
 
 /**
  *  Implements a generalized Tower of Hanoi game where towers and disks can take on assorted values.
  */
 public class Hanoi {
-    private Integer towerCount;
-    private Integer diskCount;
-    private Tower[] towers;
-    private Disk[] disks;
+    private int towerCount;
+    private int diskCount;
+    private TowerEngine towers;
 
     // USed for solving the tower of Hanoi problem
-    private Tower sourceTower;
-    private Tower destinationTower;
-    private Tower workingTower;
+    private int sourceTower;
+    private int destinationTower;
+    private int workingTower;
 
     private SolutionType solutionMethod = SolutionType.Unknown;
 
+    // Where the moves are reported
+    private MoveSink moveSink = new ConsoleMoveSink();
+
+    // Counts and times the moves when set
+    private SolveMetrics metrics = null;
+
+    // Solutions that can be replayed instead of worked out, and the recording of this solve for it
+    private SolutionCache solutionCache = null;
+    private CompactSolution.Builder recorder = null;
+
+    // Takes the Hanoi and Frame-Stewart piles as grammar rules instead of making their moves
+    private SolutionGrammar.Builder grammar = null;
+
+    // Moves made by the current solve, counting any made before it was resumed
+    private long moveCount = 0;
+    private long fingerprint;             // See HanoiSnapshot, kept up to date by every move
+
+    // Where and how often the solve is checkpointed, and the checkpoint being resumed from
+    private static final long CHECKPOINT_CHECK_MOVES = 1 << 16;   // Most moves between looking at the clock
+    private Path checkpointFile = null;
+    private long checkpointMoves = 0;
+    private long checkpointMillis = 0;
+    private long lastCheckpointMoves;
+    private long lastCheckpointTime;
+    private long nextCheckpointCheck;
+    private SolveCheckpoint resumeFrom = null;
+
     private boolean diag01 = true;
 
     // Types of solution processing based on the disks and towers
@@ -31,7 +58,16 @@ public class Hanoi {
                                       //   No regular Hanoi processing.
         BufferHanoiUnbuffer,          // Disks are buffered, traditional Hanoi processing and the disks
                                       //    are unbuffered.
-        TradionalHanoi                // Tradional Hanoi processing for testing the Hanoi Algorithm
+        TradionalHanoi,               // Tradional Hanoi processing for testing the Hanoi Algorithm
+        FrameStewart                  // Frame-Stewart splitting of the pile using every tower.  Only used
+                                      //    when asked for with setSolutionMethod().
+    };
+
+    // How the state of the towers and disks is held
+    public enum EngineType
+    {
+        TowerList,                    // Tower objects holding lists of Disk objects.
+        Primitive                     // Int array stacks with no allocation per move.
     };
 
     /**
@@ -46,9 +82,18 @@ public class Hanoi {
      * @return The type of solution we must calculate.
      */
     public SolutionType calculateSolutionsType()
+    {
+        return calculateSolutionsType( towerCount, diskCount );
+    }
+
+    /** Picks the type of solution for any number of towers and disks the way calculateSolutionsType() does.
+     *
+     * @return The type of solution we must calculate.
+     */
+    public static SolutionType calculateSolutionsType( int towerCount, int diskCount )
     {
         SolutionType solType = SolutionType.Unknown;
-        int bufferedDiskCount = 0;
+        long bufferedDiskCount = 0;
 
         if ( towerCount == 3 )
             solType = SolutionType.TradionalHanoi;
@@ -59,7 +104,7 @@ public class Hanoi {
         else
         {
              // Calculate the maximum number of disk the system can buffer
-             bufferedDiskCount =  ( ( towerCount - 1 ) *  towerCount ) /  2;
+             bufferedDiskCount =  ( ( towerCount - 1L ) *  towerCount ) /  2;
 
              if ( diskCount <= bufferedDiskCount )
              {
@@ -75,43 +120,54 @@ public class Hanoi {
     }
 
     public Hanoi( int towers, int discs )
+    {
+        this( towers, discs, EngineType.TowerList );
+    }
+
+    public Hanoi( int towers, int discs, EngineType engineType )
     {
         this.towerCount = towers;
         this.diskCount = discs;
 
-        this.towers = new Tower[towerCount + 1];
-        this.disks = new Disk[diskCount + 1];
+        // The engine fills tower 1 with the initial setup
+        if ( engineType == EngineType.Primitive )
+            this.towers = new PrimitiveTowerEngine( towerCount, diskCount );
+        else
+            this.towers = new ListTowerEngine( towerCount, diskCount );
+
+        for ( int d = 1; d <= diskCount; d++ )
+            fingerprint ^= HanoiSnapshot.diskFingerprint( d, 1 );
 
         // Solution Method
         solutionMethod = calculateSolutionsType();
 
-        // Fill the array with towers
-        for ( int i = 0; i< towerCount; i++)
-        {
-            Tower newTower = new Tower( i + 1 );
-            this.towers[i+1] = newTower;
+        sourceTower = 1;
+        destinationTower = towerCount;
+        workingTower = towerCount - 1;
+    }
 
-            if ( i == 0 )
-            {
-                sourceTower = newTower;
-            }
-            else if ( i == ( towerCount - 1 ))
-            {
-                 destinationTower = newTower;
-            }
-            else if ( i == ( towerCount - 2))
-            {
-                workingTower = newTower;
-            }
-        }
+    public int getTowerCount()
+    {
+        return towerCount;
+    }
 
-        // Fill the source tower with the initial setup and populate a vector to find the Disks int the towers
-        for ( int i = ( diskCount - 1 ); i >= 0; i-- )
-        {
-            Disk newDisk = new Disk( i + 1);
-            disks[i+1] = newDisk;
-            sourceTower.pushDisk( newDisk );
-        }
+    public int getDiskCount()
+    {
+        return diskCount;
+    }
+
+    public SolutionType getSolutionMethod()
+    {
+        return solutionMethod;
+    }
+
+    /** Overrides the solution picked by calculateSolutionsType().  FrameStewart is only picked this way.
+     *
+     * @param solutionMethod   How solve() will move the disks
+     */
+    public void setSolutionMethod( SolutionType solutionMethod )
+    {
+        this.solutionMethod = solutionMethod;
     }
 
     /** Displays the state of the towers in simple characters */
@@ -119,23 +175,26 @@ public class Hanoi {
     {
         // Build the text we will display and display to stdout
         String divider = "---------------------------------------------------------------------";
-        String top = "----   ";
+        int maxHeight = 0;
+        int index = 0;
+
+        // Every column is wide enough for the largest disk or tower id, at least two digits
+        int idWidth = Math.max( 2, Integer.toString( Math.max( diskCount, towerCount )).length() );
+        String idFormat = "%" + ( idWidth + 1 ) + "d    ";
+        String top = "-".repeat( idWidth + 2 ) + "   ";
+        String blank = " ".repeat( idWidth + 5 );
         String numbers = "";    // Tower numbers for headings
         String topHeader = "";
-        Integer towerNum = 0;
-        Integer maxHeight = 0;
-        Integer index = 0;
 
         // Build numbers and big top
         for ( int i = 0; i < towerCount; i++ )
         {
-            topHeader += "----   ";
-            towerNum = i + 1;
-            numbers += "  " + towerNum.toString() + "    ";
+            topHeader += top;
+            numbers += String.format( idFormat, i + 1 );
         }
 
         System.out.println( divider );
-        System.out.println( "Towers: " + towerCount.toString() + "  Disks: " + diskCount.toString() );
+        System.out.println( "Towers: " + towerCount + "  Disks: " + diskCount );
         System.out.println( numbers );
         System.out.println( topHeader );
 
@@ -145,8 +204,8 @@ public class Hanoi {
         {
             for ( int i = 0; i < towerCount; i++ )
             {
-                if ( towers[i + 1].disks.size() > maxHeight )
-                    maxHeight = towers[i + 1].disks.size();
+                if ( towers.getDiskCount( i + 1 ) > maxHeight )
+                    maxHeight = towers.getDiskCount( i + 1 );
             }
         }
 
@@ -163,19 +222,15 @@ public class Hanoi {
             for ( int j = 0; j < maxHeight; j++)
             {
                 // When not negative, it indexes into the disks
-                index = j - ( maxHeight - towers[i + 1].disks.size() );
+                index = j - ( maxHeight - towers.getDiskCount( i + 1 ) );
 
                 if ( index < 0 )
                 {
-                    towerDisplay[j] += "       ";
+                    towerDisplay[j] += blank;
                 }
                 else
                 {
-                     Integer diskId =  towers[i + 1].disks.get(index).getId();
-                    if ( diskId < 10 )
-                        towerDisplay[j] += "  " + diskId.toString() + "    ";
-                    else
-                        towerDisplay[j] +=  " " + diskId.toString() + "    ";
+                    towerDisplay[j] += String.format( idFormat, towers.getDiskAt( i + 1, index ));
                 }
             }
         }
@@ -185,42 +240,263 @@ public class Hanoi {
             System.out.println( towerDisplay[i] );
     }
 
-    /** Moves the disk from tower fromTowerID to to */
-    void MoveDisk( int fromTowerID, int toTowerID )
+    /** Moves a disk from one tower to another using tower ids.  If the from tower is empty, false is returned.
+     *
+     * @param fromTowerID :  The top disk is taken from here.
+     * @param toTowerID :  Ends up on the top of this
+     * @return :  If a disk was moved, true
+     */
+    boolean moveDisk( int fromTowerID, int toTowerID )
     {
-        Tower fromTower = towers[fromTowerID];
-        Tower toTower = towers[toTowerID];
+        int moveDisk = towers.moveDisk( fromTowerID, toTowerID );
 
-        moveDisk( fromTower, toTower );
+        if ( moveDisk == 0 )
+            return false;
+
+        // Keep the state in step with the towers before the sink, which can throw
+        moveCount++;
+        fingerprint ^= HanoiSnapshot.diskFingerprint( moveDisk, fromTowerID )
+                       ^ HanoiSnapshot.diskFingerprint( moveDisk, toTowerID );
+        moveSink.move( moveDisk, fromTowerID, toTowerID );
+        if ( metrics != null )
+            metrics.moveMade();
+        if ( recorder != null )
+            recorder.move( moveDisk, fromTowerID, toTowerID );
+        //display( false);
+
+        return true;
     }
 
-    /** Moves a disk from one tower to another using references.  If any references are null, false is returned.
+    /** Sets where the moves are reported.  The default prints every move to the console.
      *
-     * @param fromTower :  The top disk is taken from here.
-     * @param toTower :  Ends up on the top of this
-     * @return :  If the arguments are defined, true
+     * @param moveSink   Receives each move made by solve()
      */
-    boolean moveDisk( Tower fromTower, Tower toTower )
+    public void setMoveSink( MoveSink moveSink )
     {
-        if ( fromTower == null || toTower == null )
-            return false;
+        this.moveSink = moveSink;
+    }
+
+    public MoveSink getMoveSink()
+    {
+        return moveSink;
+    }
+
+    /** Sets the metrics solve() reports its phases and moves to.  Null turns them off.
+     *
+     * @param metrics   Counts and times the moves in each phase
+     */
+    public void setMetrics( SolveMetrics metrics )
+    {
+        this.metrics = metrics;
+    }
+
+    public SolveMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /** Sets the cache solve() replays solutions from and keeps its solution in.  Null turns it off.
+     *
+     * @param solutionCache   May be shared between Hanoi instances
+     */
+    public void setSolutionCache( SolutionCache solutionCache )
+    {
+        this.solutionCache = solutionCache;
+    }
+
+    /** Puts the disks on the towers given in place of where they are now.   The disks on each tower are
+     *    stacked by size.
+     *
+     * @param diskTower  The tower of each disk indexed by disk id.  Index 0 is unused.
+     */
+    public void setConfiguration( int[] diskTower )
+    {
+        towers.setConfiguration( diskTower );
+        fingerprint = HanoiSnapshot.fingerprint( diskTower );
+    }
+
+    /** @return The tower of each disk indexed by disk id.  Index 0 is unused. */
+    public int[] getConfiguration()
+    {
+        int[] diskTower = new int[diskCount + 1];
+
+        towers.getConfiguration( diskTower );
+
+        return diskTower;
+    }
+
+    /** @return A fingerprint of where the disks are, the same for the same configuration.  O( 1 ). */
+    public long getFingerprint()
+    {
+        return fingerprint;
+    }
+
+    /** @return The configuration and move count packed into a snapshot.  O( disks ). */
+    public HanoiSnapshot snapshot()
+    {
+        return new HanoiSnapshot( towerCount, getConfiguration(), moveCount );
+    }
+
+    /**
+     * Puts the disks back where a snapshot has them and takes its move count.  O( disks ).
+     *
+     * @param snapshot  A snapshot of the same towers and disks
+     */
+    public void restore( HanoiSnapshot snapshot )
+    {
+        if ( snapshot.getTowerCount() != towerCount || snapshot.getDiskCount() != diskCount )
+            throw new IllegalArgumentException( "The snapshot is for " + snapshot.getTowerCount() + " towers and "
+                                                + snapshot.getDiskCount() + " disks" );
+
+        towers.setConfiguration( snapshot.getDiskTowers() );
+        fingerprint = snapshot.getFingerprint();
+        moveCount = snapshot.getMoveCount();
+    }
+
+    /** @return The moves made by the current or last solve, counting any made before it was resumed. */
+    public long getMoveCount()
+    {
+        return moveCount;
+    }
+
+    /**
+     * Has solve() keep a checkpoint of where it has got to, replacing it every so many moves or seconds.
+     *    Checkpoints are taken between phases and between the iterations of the Hanoi pile, and the move sink
+     *    is flushed before each one.   A last checkpoint marks the solve as complete.
+     *
+     * @param file           Where the checkpoint is kept, null turns checkpoints off
+     * @param everyMoves     Moves between checkpoints, 0 for no limit
+     * @param everyMillis    Milliseconds between checkpoints, 0 for no limit
+     */
+    public void setCheckpoint( Path file, long everyMoves, long everyMillis )
+    {
+        this.checkpointFile = file;
+        this.checkpointMoves = Math.max( 0, everyMoves );
+        this.checkpointMillis = Math.max( 0, everyMillis );
+    }
+
+    /**
+     * Puts the disks back where a checkpoint left them so the next solve() carries on from there and makes
+     *    the same moves an uninterrupted solve would have made after it.   The output of the move sink should
+     *    be cut back to the position in the checkpoint first.
+     *
+     * @param file   A checkpoint kept by a solve of the same towers and disks
+     * @return The checkpoint that is being resumed
+     */
+    public SolveCheckpoint resume( Path file ) throws IOException
+    {
+        SolveCheckpoint checkpoint = SolveCheckpoint.read( file );
+
+        if ( checkpoint.getTowerCount() != towerCount || checkpoint.getDiskCount() != diskCount )
+            throw new IOException( "The checkpoint is for " + checkpoint.getTowerCount() + " towers and "
+                                   + checkpoint.getDiskCount() + " disks" );
+
+        setConfiguration( checkpoint.getDiskTowers() );
+        solutionMethod = checkpoint.getSolutionType();
+        moveCount = checkpoint.getMoveCount();
+        resumeFrom = checkpoint;
+
+        return checkpoint;
+    }
 
-        Disk moveDisk = fromTower.popDisk();
-        toTower.pushDisk( moveDisk );
-        moveDiskDisplay( moveDisk, fromTower, toTower );
+    /** Starts a phase unless the solve being resumed is past it.
+     *
+     * @return False when the phase is skipped.
+     */
+    private boolean beginPhase( SolveMetrics.Phase phase )
+    {
+        if ( resumeFrom != null )
+        {
+            if ( phase.ordinal() < resumeFrom.getPhase().ordinal() )
+                return false;
 
+            // Carrying on part way through the Hanoi pile is left to processTowerHanoi()
+            if ( resumeFrom.getIteration() == 0 )
+                resumeFrom = null;
+        }
+        else if ( checkpointFile != null && moveCount >= nextCheckpointCheck )
+        {
+            checkpointIfDue( phase, 0, 0 );
+        }
+
+        startPhase( phase );
         return true;
     }
 
-    /** Display the info about a disk move
+    /** Writes a checkpoint if enough moves or time have gone by since the last one */
+    private void checkpointIfDue( SolveMetrics.Phase phase, int hanoiDiskCount, long iteration )
+    {
+        boolean due = ( checkpointMoves > 0 && moveCount - lastCheckpointMoves >= checkpointMoves )
+                      || ( checkpointMillis > 0 && System.currentTimeMillis() - lastCheckpointTime >= checkpointMillis );
+
+        if ( due )
+            writeCheckpoint( phase, hanoiDiskCount, iteration );
+        else
+            scheduleCheckpointCheck();
+    }
+
+    /** Flushes the moves made so far and keeps where the solve has got to */
+    private void writeCheckpoint( SolveMetrics.Phase phase, int hanoiDiskCount, long iteration )
+    {
+        moveSink.flush();
+
+        try
+        {
+            new SolveCheckpoint( towerCount, solutionMethod, phase, hanoiDiskCount, iteration, moveCount,
+                                 moveSink.getOutputPosition(), getConfiguration() ).write( checkpointFile );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+
+        lastCheckpointMoves = moveCount;
+        lastCheckpointTime = System.currentTimeMillis();
+        scheduleCheckpointCheck();
+    }
+
+    /** Sets the move count at which checkpointIfDue() next looks at the moves and the clock */
+    private void scheduleCheckpointCheck()
+    {
+        long step = CHECKPOINT_CHECK_MOVES;
+        if ( checkpointMoves > 0 )
+            step = Math.min( step, lastCheckpointMoves + checkpointMoves - moveCount );
+
+        nextCheckpointCheck = moveCount + Math.max( 1, step );
+    }
+
+    /** Makes the moves of a kept solution.
      *
+     * @param solution   The moves to make
+     * @param towerMap   The tower to use for each tower id in the solution, null to use them as they are
      */
-    void moveDiskDisplay( Disk moveDisk, Tower fromTower, Tower toTower )
+    void replaySolution( CompactSolution solution, int[] towerMap )
     {
-        System.out.println(MessageFormat.format("MOVING Disk:{0} From Tower:{1} To Tower:{2}",
-                                                   moveDisk.getId(), fromTower.towerId, toTower.towerId)
-        );
-        //display( false);
+        int moveCount = solution.getMoveCount();
+
+        for ( int i = 0; i < moveCount; i++ )
+        {
+            if ( towerMap == null )
+                moveDisk( solution.getFromTower( i ), solution.getToTower( i ));
+            else
+                moveDisk( towerMap[solution.getFromTower( i )], towerMap[solution.getToTower( i )] );
+        }
+    }
+
+    /** Tells the metrics, if there are any, that a phase is starting */
+    private void startPhase( SolveMetrics.Phase phase )
+    {
+        if ( metrics != null )
+            metrics.startPhase( phase );
+    }
+
+    /** Works out the moves solve() will make in each phase without making them.
+     *
+     * @return The moves for the current solution method
+     */
+    public MovePrediction predictMoves()
+    {
+        return MovePredictor.predict( towerCount, diskCount, solutionMethod );
     }
 
     /** Is the tower empty based on its id
@@ -229,7 +505,7 @@ public class Hanoi {
      */
     boolean isTowerEmpty( int towerID )
     {
-        return ( towers[towerID].isEmpty());
+        return ( towers.isEmpty( towerID ));
     }
 
     /**
@@ -241,7 +517,7 @@ public class Hanoi {
      */
     void bufferDisks()
     {
-        Integer maxTowerPile = 0;    // Specifies where the last buffer pile will be created.   The will
+        int maxTowerPile = 0;        // Specifies where the last buffer pile will be created.   The will
                                      //   allow us to make room for the empty towers when employing the
                                      //   Tower of Hanoi Algorithm.
 
@@ -266,14 +542,14 @@ public class Hanoi {
 
             // Spread the values out
             for ( int d = towerCount; ( d >= t ) && !isTowerEmpty( 1 ); d-- )
-                MoveDisk( 1, d );
+                moveDisk( 1, d );
 
             // Make the disks into a tower
             for ( int s = t + 1; s <= towerCount; s++ )
             {
                 if ( !isTowerEmpty( s ))
                 {
-                    MoveDisk( s, t );
+                    moveDisk( s, t );
                 }
 
             }
@@ -287,24 +563,24 @@ public class Hanoi {
      */
     void processBufferedDisks()
     {
-        Tower[] freeTower = new Tower[towerCount];
+        int[] freeTower = new int[towerCount];
         int freeTowerCount = 0;                          // Free Tours to move discs to.
 
-        freeTower[freeTowerCount++] = towers[1];     // The Source which should now be empty
+        freeTower[freeTowerCount++] = 1;     // The Source which should now be empty
 
             // Process the little tower buffers, place the buffers onto empty towers and move them to the destination.
             for ( int i = towerCount -1; i >=  2; i-- )
             {
                 // Nothing here move it to the freeTower list.
-                if ( towers[i].isEmpty())
+                if ( towers.isEmpty( i ))
                 {
                     // Add it to the freeTower array
-                    freeTower[freeTowerCount++] = towers[i];
+                    freeTower[freeTowerCount++] = i;
                 }
                 else
                 {
                     // Move N -1 of the disks to the Empty towers
-                    int discsOnTower = towers[i].getDiskCount();
+                    int discsOnTower = towers.getDiskCount( i );
                     discsOnTower--;            // We will be leaving one disk on the tower.  It should be the max on the
                                                //  tower.
 
@@ -312,10 +588,10 @@ public class Hanoi {
                     for ( int d = 0; d < discsOnTower; d++ )
                     {
                           // Move the disks to the free towers
-                          moveDisk( towers[i], freeTower[d]);
+                          moveDisk( i, freeTower[d]);
                     }
                     // Move the disk that was on the bottom to the destination
-                    moveDisk( towers[i], destinationTower );
+                    moveDisk( i, destinationTower );
 
                     // Move all the other disks to the destination in the reverse order in which they were put out.
                     for ( int d = discsOnTower - 1; d >= 0; d--)
@@ -323,7 +599,7 @@ public class Hanoi {
                         moveDisk( freeTower[d], destinationTower);
                     }
                     // The tower should now be empty, add it to the list of free towers.
-                    freeTower[freeTowerCount++] = towers[i];
+                    freeTower[freeTowerCount++] = i;
                 }
             }
     }
@@ -331,27 +607,26 @@ public class Hanoi {
     /** Determines the move between towers based on what is on top of the tower and maintain that a
      *  larger disk can't be put on top of a smaller disk.  Id is the size of the disk.
      */
-    void moveDiskBetweenTowers( Tower aTower, Tower bTower )
+    void moveDiskBetweenTowers( int aTower, int bTower )
     {
-        // If bad input return false
-        if ( aTower == null || bTower == null )
-            return;
+        int aTopDisk = towers.getTopDisk( aTower );
+        int bTopDisk = towers.getTopDisk( bTower );
 
         // If A is empty, move the top entry for bTower to aTower
-        if ( aTower.isEmpty() )
+        if ( aTopDisk == 0 )
         {
             moveDisk( bTower, aTower );
         }
         // If bTower is empty, move the top entry from aTower tp bTower
-        else if ( bTower.isEmpty() )
+        else if ( bTopDisk == 0 )
         {
             moveDisk( aTower, bTower );
         }
-        else if ( aTower.getTopDisk().getId() > bTower.getTopDisk().getId() )
+        else if ( aTopDisk > bTopDisk )
         {
             moveDisk( bTower, aTower );
         }
-        else if ( aTower.getTopDisk().getId() < bTower.getTopDisk().getId() )
+        else if ( aTopDisk < bTopDisk )
         {
             moveDisk( aTower, bTower );
         }
@@ -365,27 +640,62 @@ public class Hanoi {
      * @param wrkTower   Working Tower
      * @param dstTower   Destination Tower
      */
-    void processTowerHanoi( Tower srcTower, Tower wrkTower, Tower dstTower)
+    void processTowerHanoi( int srcTower, int wrkTower, int dstTower)
     {
-        int srcDiskCount = srcTower.getDiskCount();
+        int srcDiskCount = towers.getDiskCount( srcTower );
+        long firstIteration = 1;
+        boolean resumed = false;
+
+        // Carry on after the iteration a checkpoint was taken at.  The source tower has lost disks by now.
+        if ( resumeFrom != null )
+        {
+            srcDiskCount = resumeFrom.getHanoiDiskCount();
+            firstIteration = resumeFrom.getIteration() + 1;
+            resumeFrom = null;
+            resumed = true;
+        }
+        // The pile becomes a rule and is put straight on the destination
+        else if ( grammar != null )
+        {
+            moveCount += grammar.hanoi( srcDiskCount, srcTower, wrkTower, dstTower, towers.getTopDisk( srcTower ) - 1 );
+            placePile( srcDiskCount, srcTower, dstTower );
+            return;
+        }
+        // A kept solution is a copy of this one between towers 1, 2 and 3
+        else if ( solutionCache != null )
+        {
+            CompactSolution cached = solutionCache.getTraditionalHanoi( srcDiskCount );
+            if ( cached != null )
+            {
+                replaySolution( cached, new int[]{ 0, srcTower, wrkTower, dstTower } );
+                return;
+            }
+        }
 
         // If the disks are even, swap the working and destination tower.
         if ( ( srcDiskCount % 2 ) == 0 )
         {
-            Tower tmp;  // Used when swapping
+            int tmp;  // Used when swapping
             tmp = dstTower;
             dstTower = wrkTower;
             wrkTower = tmp;
         }
 
-        // Iterations to solve the system
-        long iterations = (long)pow( 2.0, srcDiskCount ) - 1;
+        // Iterations to solve the system, 2^disks - 1.   Past 63 disks the count no longer fits in a long,
+        //   so those piles run until every disk has reached the final tower.
+        long iterations = ( srcDiskCount < 63 ) ? ( 1L << srcDiskCount ) - 1 : Long.MAX_VALUE;
+        int finalTower = ( ( srcDiskCount % 2 ) == 0 ) ? wrkTower : dstTower;
+        // The final tower starts every Hanoi phase empty, so a resumed pile is done when it holds them all
+        int finalDiskCount = resumed ? srcDiskCount : towers.getDiskCount( finalTower ) + srcDiskCount;
 
         /* Based on the iteration number, move the disks in the patter used to move
          *   from the source to the destination towers.
          */
-         for ( long i = 1; i <= iterations; i++ )
+         for ( long i = firstIteration; i <= iterations; i++ )
         {
+            if ( iterations == Long.MAX_VALUE && towers.getDiskCount( finalTower ) == finalDiskCount )
+                break;
+
             // Move the top disk between source and destination towers
             if ( ( i % 3 ) == 1)
             {
@@ -402,7 +712,393 @@ public class Hanoi {
             {
                 moveDiskBetweenTowers( wrkTower, dstTower );
             }
+
+            if ( checkpointFile != null && moveCount >= nextCheckpointCheck )
+                checkpointIfDue( SolveMetrics.Phase.TowerHanoi, srcDiskCount, i );
+        }
+    }
+
+    /**  Moves the top disks of a tower to another tower using the Frame-Stewart split from the
+     *         FrameStewartPlanner.   The top split disks go to a spare tower, the rest go to the destination
+     *         without that spare and the split disks go on top of them.
+     *
+     *         The spare towers are kept in one array that is swapped around and put back on the way out of
+     *         each call, so nothing is allocated while moving.
+     *
+     * @param moveDiskCount   Disks to move from the top of the source tower
+     * @param srcTower        Source Tower
+     * @param dstTower        Destination Tower
+     * @param spareTowers     Towers that can be used to hold disks along the way
+     * @param spareCount      Number of entries in spareTowers that are in use
+     */
+    void processFrameStewart( int moveDiskCount, int srcTower, int dstTower, int[] spareTowers, int spareCount )
+    {
+        if ( moveDiskCount == 0 )
+            return;
+
+        // The pile becomes rules and is put straight on the destination
+        if ( grammar != null )
+        {
+            moveCount += grammar.frameStewart( moveDiskCount, srcTower, dstTower, spareTowers, spareCount,
+                                               towers.getTopDisk( srcTower ) - 1 );
+            placePile( moveDiskCount, srcTower, dstTower );
+            return;
+        }
+
+        if ( moveDiskCount == 1 || spareCount == 0 )
+        {
+            moveDisk( srcTower, dstTower );
+            return;
+        }
+
+        int split = FrameStewartPlanner.getSplit( moveDiskCount, spareCount + 2 );
+        int holdTower = spareTowers[spareCount - 1];
+
+        // Move the top disks to the hold tower, the destination is a spare for now
+        spareTowers[spareCount - 1] = dstTower;
+        processFrameStewart( split, srcTower, holdTower, spareTowers, spareCount );
+
+        // Move the rest without the hold tower
+        processFrameStewart( moveDiskCount - split, srcTower, dstTower, spareTowers, spareCount - 1 );
+
+        // Move the top disks onto the destination, the source is a spare now
+        spareTowers[spareCount - 1] = srcTower;
+        processFrameStewart( split, holdTower, dstTower, spareTowers, spareCount );
+
+        spareTowers[spareCount - 1] = holdTower;
+    }
+
+    /**
+     * Moves the disks from wherever they are now to the towers given, without starting over from tower 1.
+     *    The largest disk that is not where it belongs is moved first, after the smaller disks are gathered
+     *    out of its way onto a hold tower, then the next largest and so on.
+     *
+     *    With 3 towers this takes the fewest moves possible.  The largest disk is moved straight there or,
+     *    when it is cheaper, by way of the other tower so the smaller disks can be gathered where it is
+     *    going.   With more towers the disks under it that go the same way move with it as a pile, the hold
+     *    tower is the one that looks cheapest from the Frame-Stewart counts for what it has to take now and
+     *    hand on later, and piles are moved the Frame-Stewart way.   From all the disks on one tower to all
+     *    of them on another this makes the same number of moves as FrameStewart.
+     *
+     * @param goalTower  The tower each disk should end up on indexed by disk id.  Index 0 is unused.
+     * @return  True when the disks reached the goal.
+     */
+    public boolean solveTo( int[] goalTower )
+    {
+        if ( goalTower.length != diskCount + 1 )
+            throw new IllegalArgumentException( "Need a goal tower for each of the " + diskCount + " disks" );
+
+        for ( int d = 1; d <= diskCount; d++ )
+        {
+            if ( goalTower[d] < 1 || goalTower[d] > towerCount )
+                throw new IllegalArgumentException( "Disk " + d + " has a goal tower that does not exist: " + goalTower[d] );
+        }
+
+        boolean success = false;
+        moveCount = 0;
+
+        if ( metrics != null )
+            metrics.solveStarted( 0, 0 );
+
+        try
+        {
+            int k = largestMisplacedDisk( goalTower, diskCount );
+            while ( k > 0 )
+            {
+                int fromTower = towers.getDiskTower( k );
+                int toTower = goalTower[k];
+
+                if ( towerCount == 3 )
+                {
+                    int otherTower = 6 - fromTower - toTower;
+
+                    // Past 62 disks the counts don't fit in a long, and moving it once is the usual answer
+                    long direct = 0;
+                    long roundabout = 1;
+                    if ( k <= 62 )
+                    {
+                        direct = addMoves( addMoves( gatherMoves( k - 1, otherTower, null ), 1 ),
+                                           gatherMoves( k - 1, otherTower, goalTower ));
+                        roundabout = addMoves( addMoves( gatherMoves( k - 1, toTower, null ), 1L << ( k - 1 )),
+                                               addMoves( gatherMoves( k - 1, fromTower, goalTower ), 1 ));
+                    }
+
+                    if ( roundabout < direct )
+                    {
+                        gatherDisks( k - 1, toTower );
+                        moveDisk( fromTower, otherTower );
+                        moveTower( k - 1, toTower, fromTower, 0 );
+                        moveDisk( otherTower, toTower );
+                    }
+                    else
+                    {
+                        gatherDisks( k - 1, otherTower );
+                        moveDisk( fromTower, toTower );
+                    }
+                }
+                else
+                {
+                    // The disks under it on the same tower going to the same tower move with it as a pile
+                    int pileBottom = k;
+                    while ( k > 1 && towers.getDiskTower( k - 1 ) == fromTower && goalTower[k - 1] == toTower )
+                        k--;
+
+                    int holdTower = 0;
+                    if ( k > 1 )
+                    {
+                        holdTower = pickHoldTower( k - 1, fromTower, toTower, goalTower );
+                        gatherDisks( k - 1, holdTower );
+                    }
+                    moveTower( pileBottom - k + 1, fromTower, toTower, holdTower );
+                }
+
+                k = largestMisplacedDisk( goalTower, k - 1 );
+            }
+
+            moveSink.flush();
+            success = true;
+        }
+        catch ( Exception ignored )
+        {
+
+        }
+
+        if ( metrics != null )
+            metrics.solveFinished();
+
+        return success;
+    }
+
+    /** @return The largest disk up to maxDisk that is not on its goal tower, 0 when they all are. */
+    private int largestMisplacedDisk( int[] goalTower, int maxDisk )
+    {
+        int d = maxDisk;
+
+        while ( d >= 1 && towers.getDiskTower( d ) == goalTower[d] )
+            d--;
+
+        return d;
+    }
+
+    /** @return The largest disk up to maxDisk that is not on the tower, 0 when they all are.   The current
+     *             towers are used when diskTower is null.
+     */
+    private int largestDiskNotOn( int maxDisk, int towerId, int[] diskTower )
+    {
+        int d = maxDisk;
+
+        while ( d >= 1 && ( diskTower == null ? towers.getDiskTower( d ) : diskTower[d] ) == towerId )
+            d--;
+
+        return d;
+    }
+
+    /**
+     * Counts the 3 tower moves to gather disks 1 to maxDisk onto a tower, from the current towers or
+     *    from diskTower.   Gathering from a configuration takes as many moves as spreading out into it.
+     *    Only good up to 63 disks.
+     */
+    private long gatherMoves( int maxDisk, int towerId, int[] diskTower )
+    {
+        long moves = 0;
+        int target = towerId;
+
+        // A disk off the target has to move there once everything smaller is on the third tower
+        for ( int d = maxDisk; d >= 1; d-- )
+        {
+            int tower = ( diskTower == null ) ? towers.getDiskTower( d ) : diskTower[d];
+
+            if ( tower != target )
+            {
+                moves = addMoves( moves, 1L << ( d - 1 ));
+                target = 6 - tower - target;
+            }
+        }
+
+        return moves;
+    }
+
+    /** Adds counts of moves, stopping at Long.MAX_VALUE */
+    private static long addMoves( long a, long b )
+    {
+        long sum = a + b;
+
+        return ( sum < 0 ) ? Long.MAX_VALUE : sum;
+    }
+
+    /**
+     * Picks the tower the disks smaller than a moving disk wait on.   Each candidate is scored by the
+     *    Frame-Stewart moves of the largest pile it would have to take, and of the largest pile it would
+     *    have to hand on to reach the goal.
+     *
+     * @param maxDisk     The largest of the disks that have to wait
+     * @param fromTower   Where the moving disk is
+     * @param toTower     Where the moving disk goes
+     * @param goalTower   Where the waiting disks end up, null when they go on to toTower as a pile
+     * @return  The cheapest hold tower.
+     */
+    private int pickHoldTower( int maxDisk, int fromTower, int toTower, int[] goalTower )
+    {
+        int bestTower = 0;
+        long bestMoves = Long.MAX_VALUE;
+
+        for ( int t = 1; t <= towerCount; t++ )
+        {
+            if ( t == fromTower || t == toTower )
+                continue;
+
+            long moves = FrameStewartPlanner.getMoveCount( largestDiskNotOn( maxDisk, t, null ), towerCount );
+            if ( goalTower != null )
+                moves = addMoves( moves, FrameStewartPlanner.getMoveCount( largestDiskNotOn( maxDisk, t, goalTower ), towerCount ));
+
+            if ( bestTower == 0 || moves < bestMoves )
+            {
+                bestTower = t;
+                bestMoves = moves;
+            }
+        }
+
+        return bestTower;
+    }
+
+    /** Brings disks 1 to maxDisk onto a tower from wherever they are.   The larger disks are left alone. */
+    private void gatherDisks( int maxDisk, int towerId )
+    {
+        // The largest disks may already be at the bottom of the tower
+        int d = largestDiskNotOn( maxDisk, towerId, null );
+        if ( d == 0 )
+            return;
+
+        int fromTower = towers.getDiskTower( d );
+
+        // With spares to spare, the disks on top of it on the same tower move with it as a pile
+        int pileTop = d;
+        if ( towerCount > 3 )
+        {
+            while ( pileTop > 1 && towers.getDiskTower( pileTop - 1 ) == fromTower )
+                pileTop--;
+        }
+
+        if ( pileTop == 1 )
+        {
+            moveTower( d, fromTower, towerId, 0 );
+            return;
+        }
+
+        int holdTower = pickHoldTower( pileTop - 1, fromTower, towerId, null );
+        gatherDisks( pileTop - 1, holdTower );
+        moveTower( d - pileTop + 1, fromTower, towerId, holdTower );
+        moveTower( pileTop - 1, holdTower, towerId, 0 );
+    }
+
+    /** Moves the top pile of a tower with every other tower but the hold tower as a spare.  Larger disks
+     *    under them don't matter.
+     *
+     * @param holdTower   A tower holding smaller disks that can't be used, 0 for none
+     */
+    private void moveTower( int moveDiskCount, int srcTower, int dstTower, int holdTower )
+    {
+        int[] spareTowers = new int[towerCount - 2];
+        int spareCount = 0;
+
+        for ( int t = 1; t <= towerCount; t++ )
+        {
+            if ( t != srcTower && t != dstTower && t != holdTower )
+                spareTowers[spareCount++] = t;
+        }
+
+        processFrameStewart( moveDiskCount, srcTower, dstTower, spareTowers, spareCount );
+    }
+
+    /**
+     * Solves the way solve() does, but keeps the Hanoi and Frame-Stewart piles as grammar rules instead of
+     *    making their moves, so the solution is built in O( disks * towers ) whatever its move count.   The
+     *    towers end up solved.   The move sink, metrics, cache and checkpoints are left out of it.
+     *
+     * @return The solution or null when it could not be solved.
+     */
+    public SolutionGrammar solveToGrammar()
+    {
+        SolutionGrammar.Builder builder = new SolutionGrammar.Builder( towerCount, diskCount );
+        MoveSink savedSink = moveSink;
+        SolveMetrics savedMetrics = metrics;
+        SolutionCache savedCache = solutionCache;
+        Path savedCheckpoint = checkpointFile;
+        boolean success;
+
+        moveSink = builder;
+        metrics = null;
+        solutionCache = null;
+        checkpointFile = null;
+        grammar = builder;
+        try
+        {
+            success = solve();
+        }
+        finally
+        {
+            grammar = null;
+            moveSink = savedSink;
+            metrics = savedMetrics;
+            solutionCache = savedCache;
+            checkpointFile = savedCheckpoint;
+        }
+
+        return success ? builder.build() : null;
+    }
+
+    /**
+     * The moves solve() makes with the current solution method, made as they are pulled from the stream.
+     *    The moves come from a grammar of a separate solve, so these towers are left as they are.   Memory
+     *    stays small however many moves are taken, and the stream splits for parallel().
+     */
+    public Stream<HanoiMove> moves()
+    {
+        return solutionGrammar().stream();
+    }
+
+    /**
+     * The moves solve() makes from one move number to another.   The moves before firstMove are skipped
+     *    without being made, so this is the way to skip ahead rather than Stream.skip().
+     *
+     * @param firstMove   First move number, from 1
+     * @param lastMove    Last move number, included
+     */
+    public Stream<HanoiMove> moves( long firstMove, long lastMove )
+    {
+        return solutionGrammar().stream( firstMove, lastMove );
+    }
+
+    /** @return The grammar of solve() from the start on towers of the same size */
+    private SolutionGrammar solutionGrammar()
+    {
+        Hanoi solver = new Hanoi( towerCount, diskCount, EngineType.Primitive );
+        solver.setSolutionMethod( solutionMethod );
+
+        SolutionGrammar grammar = solver.solveToGrammar();
+        if ( grammar == null )
+            throw new IllegalStateException( "No " + solutionMethod + " solution for " + towerCount + " towers and "
+                                             + diskCount + " disks" );
+
+        return grammar;
+    }
+
+    /** Puts the top disks of a tower on another tower without making the moves */
+    private void placePile( int pileDiskCount, int srcTower, int dstTower )
+    {
+        int[] diskTower = getConfiguration();
+
+        // The smallest disks on a tower are the top ones
+        for ( int d = 1, placed = 0; d <= diskCount && placed < pileDiskCount; d++ )
+        {
+            if ( diskTower[d] == srcTower )
+            {
+                diskTower[d] = dstTower;
+                placed++;
+            }
         }
+
+        setConfiguration( diskTower );
     }
 
     /**  Solves the Tower of Hanoi in an iterative manner doing the moves based on a set of rules.
@@ -429,51 +1125,115 @@ public class Hanoi {
     boolean solve()
     {
         boolean success = false;
+        boolean resuming = ( resumeFrom != null );
+
+        if ( !resuming )
+            moveCount = 0;
+
+        if ( checkpointFile != null )
+        {
+            lastCheckpointMoves = moveCount;
+            lastCheckpointTime = System.currentTimeMillis();
+            scheduleCheckpointCheck();
+        }
 
+        if ( metrics != null )
+            metrics.solveStarted( predictMoves().getTotalMoves(), moveCount );
+
+        SolutionCache.Key cacheKey = null;
+        CompactSolution cached = null;
+        if ( solutionCache != null && !resuming )
+        {
+            cacheKey = new SolutionCache.Key( towerCount, diskCount, solutionMethod );
+            cached = solutionCache.get( cacheKey );
+
+            if ( cached == null )
+                recorder = new CompactSolution.Builder( towerCount, diskCount, solutionCache.getMaxMoves() );
+        }
 
         try
         {
+            // Nothing is left to do after a complete checkpoint
+            if (resuming && resumeFrom.isComplete()) {
+                resumeFrom = null;
+            }
+            // Replay the same solve from before
+            else if (cached != null) {
+                replaySolution(cached, null);
+            }
             // Solving a spread and stack
-            if (solutionMethod == SolutionType.ShiftAndStack) {
-                // Put the disks out
-                for (int i = 0; i < diskCount; i++) {
-                    MoveDisk(1, i + 2);
-                }
+            else if (solutionMethod == SolutionType.ShiftAndStack) {
+                if (beginPhase(SolveMetrics.Phase.ShiftAndStack)) {
+
+                    // Put the disks out
+                    for (int i = 0; i < diskCount; i++) {
+                        moveDisk(1, i + 2);
+                    }
 
-               // display(true);
+                   // display(true);
 
-                // Stack the disks: skip the destination disk as it might already be there.
-                for (int i = (diskCount + 1); i >= 2; i--) {
-                    MoveDisk(i, towerCount);
+                    // Stack the disks: skip the destination disk as it might already be there.
+                    for (int i = (diskCount + 1); i >= 2; i--) {
+                        moveDisk(i, towerCount);
+                    }
                 }
             }
 
             //  Solving a spread, stack, spread, stack
             else if (solutionMethod == SolutionType.BufferUnbuffer) {
-                bufferDisks();
+                if (beginPhase(SolveMetrics.Phase.BufferDisks))
+                    bufferDisks();
                 //display(true);
-                processBufferedDisks();
+                if (beginPhase(SolveMetrics.Phase.BufferedDisks))
+                    processBufferedDisks();
                 //display(true);
             }
             //  Solve the buffered situation with a Hanoi solve in between.
             else if (solutionMethod == SolutionType.BufferHanoiUnbuffer) {
-                bufferDisks();
+                if (beginPhase(SolveMetrics.Phase.BufferDisks))
+                    bufferDisks();
                 //display(true);
-                processTowerHanoi(sourceTower, workingTower, destinationTower);
-                processBufferedDisks();
+                if (beginPhase(SolveMetrics.Phase.TowerHanoi))
+                    processTowerHanoi(sourceTower, workingTower, destinationTower);
+                if (beginPhase(SolveMetrics.Phase.BufferedDisks))
+                    processBufferedDisks();
                 //display(true);
             }
             // Solve the traditional Hanoi Tower
             else if (solutionMethod == SolutionType.TradionalHanoi) {
-                processTowerHanoi(sourceTower, workingTower, destinationTower);
+                if (beginPhase(SolveMetrics.Phase.TowerHanoi))
+                    processTowerHanoi(sourceTower, workingTower, destinationTower);
+            }
+            // Solve with Frame-Stewart using every tower in between as a spare
+            else if (solutionMethod == SolutionType.FrameStewart) {
+                int[] spareTowers = new int[towerCount - 2];
+                for (int i = 0; i < spareTowers.length; i++) {
+                    spareTowers[i] = i + 2;
+                }
+                if (beginPhase(SolveMetrics.Phase.FrameStewart))
+                    processFrameStewart(diskCount, sourceTower, destinationTower, spareTowers, spareTowers.length);
             }
 
+            moveSink.flush();
+            if (checkpointFile != null) {
+                writeCheckpoint(null, 0, 0);
+            }
             success = true;
+
+            if (recorder != null) {
+                solutionCache.put(cacheKey, recorder.build());
+            }
         }
         catch ( Exception ignored)
         {
 
         }
+        recorder = null;
+        resumeFrom = null;
+
+        if ( metrics != null )
+            metrics.solveFinished();
+
         return success;
     }
 
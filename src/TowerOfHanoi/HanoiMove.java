@@ -0,0 +1,47 @@
+package TowerOfHanoi;
+
+/**
+ * HanoiMove:  A single move of a disk from one tower to another.
+ */
+public class HanoiMove {
+    private final int diskId;
+    private final int fromTowerId;
+    private final int toTowerId;
+
+    public HanoiMove( int diskId, int fromTowerId, int toTowerId ) {
+        this.diskId = diskId;
+        this.fromTowerId = fromTowerId;
+        this.toTowerId = toTowerId;
+    }
+
+    public int getDiskId() {
+        return diskId;
+    }
+
+    public int getFromTowerId() {
+        return fromTowerId;
+    }
+
+    public int getToTowerId() {
+        return toTowerId;
+    }
+
+    @Override
+    public boolean equals( Object o ) {
+        if ( !( o instanceof HanoiMove ) )
+            return false;
+
+        HanoiMove other = (HanoiMove)o;
+        return diskId == other.diskId && fromTowerId == other.fromTowerId && toTowerId == other.toTowerId;
+    }
+
+    @Override
+    public int hashCode() {
+        return ( diskId * 31 + fromTowerId ) * 31 + toTowerId;
+    }
+
+    @Override
+    public String toString() {
+        return "MOVING Disk:" + diskId + " From Tower:" + fromTowerId + " To Tower:" + toTowerId;
+    }
+}
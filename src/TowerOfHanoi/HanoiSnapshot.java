@@ -0,0 +1,264 @@
+package TowerOfHanoi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * HanoiSnapshot:  The state of a Hanoi instance in a few longs:  the tower of every disk as a digit of
+ *    just enough bits for the tower count, packed into longs lowest bits first with no digit split across
+ *    two longs.   The order of the disks on a tower is always by size, so the towers of the disks are the
+ *    whole state.   Taking one and restoring it are O( disks ).
+ *
+ *    Each snapshot carries the 64 bit fingerprint Hanoi keeps up to date as it moves, the XOR over every
+ *    disk of diskFingerprint( disk, tower ).   A move only changes one disk's term, so the fingerprint is
+ *    kept in O( 1 ) a move.   Equal states have equal fingerprints, so snapshots hash on the fingerprint
+ *    and are compared on the packed towers.
+ *
+ *    toBytes() lays a snapshot out as
+ *        int   magic "HNSS"
+ *        int   format version
+ *        int   tower count
+ *        int   disk count
+ *        long  moves made
+ *        long  fingerprint
+ *    followed by the packed longs, all little endian like the move log.
+ */
+public final class HanoiSnapshot
+{
+    public static final int MAGIC = 0x484E5353;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+
+    private final int towerCount;
+    private final int diskCount;
+    private final int bitsPerTower;
+    private final int towersPerWord;
+    private final long moveCount;
+    private final long fingerprint;
+    private final long[] words;
+
+    /**
+     * @param towerCount   Towers in the system
+     * @param diskTower    The tower of each disk indexed by disk id.  Index 0 is unused.
+     * @param moveCount    Moves made to reach the state
+     */
+    public HanoiSnapshot( int towerCount, int[] diskTower, long moveCount )
+    {
+        this( towerCount, diskTower.length - 1, moveCount, pack( towerCount, diskTower ));
+    }
+
+    /** A snapshot of towers already packed */
+    private HanoiSnapshot( int towerCount, int diskCount, long moveCount, long[] words )
+    {
+        this.towerCount = towerCount;
+        this.diskCount = diskCount;
+        this.bitsPerTower = bitsPerTower( towerCount );
+        this.towersPerWord = 64 / bitsPerTower;
+        this.moveCount = moveCount;
+        this.words = words;
+        this.fingerprint = fingerprint( getDiskTowers() );
+    }
+
+    /**
+     * The part of a fingerprint for one disk on one tower.   Worked out with a 64 bit mix rather than looked
+     *   up, so any number of disks and towers is covered without a table.
+     */
+    public static long diskFingerprint( int diskId, int towerId )
+    {
+        long z = diskId * 0x9E3779B97F4A7C15L + towerId;
+
+        z = ( z ^ ( z >>> 30 )) * 0xBF58476D1CE4E5B9L;
+        z = ( z ^ ( z >>> 27 )) * 0x94D049BB133111EBL;
+        return z ^ ( z >>> 31 );
+    }
+
+    /**
+     * @param diskTower  The tower of each disk indexed by disk id.  Index 0 is unused.
+     * @return The fingerprint of the state
+     */
+    public static long fingerprint( int[] diskTower )
+    {
+        long fingerprint = 0;
+
+        for ( int d = 1; d < diskTower.length; d++ )
+            fingerprint ^= diskFingerprint( d, diskTower[d] );
+
+        return fingerprint;
+    }
+
+    public int getTowerCount()
+    {
+        return towerCount;
+    }
+
+    public int getDiskCount()
+    {
+        return diskCount;
+    }
+
+    /** @return The moves made to reach the state */
+    public long getMoveCount()
+    {
+        return moveCount;
+    }
+
+    public long getFingerprint()
+    {
+        return fingerprint;
+    }
+
+    /** @return The tower disk diskId is on */
+    public int getTower( int diskId )
+    {
+        if ( diskId < 1 || diskId > diskCount )
+            throw new IllegalArgumentException( "Disk out of range: " + diskId );
+
+        return (int)( ( words[( diskId - 1 ) / towersPerWord] >>> shift( diskId )) & ( ( 1L << bitsPerTower ) - 1 )) + 1;
+    }
+
+    /** @return The tower of each disk indexed by disk id.  Index 0 is unused. */
+    public int[] getDiskTowers()
+    {
+        int[] diskTower = new int[diskCount + 1];
+        long mask = ( 1L << bitsPerTower ) - 1;
+
+        for ( int d = 1; d <= diskCount; d++ )
+            diskTower[d] = (int)( ( words[( d - 1 ) / towersPerWord] >>> shift( d )) & mask ) + 1;
+
+        return diskTower;
+    }
+
+    /** @return The bytes toBytes() takes */
+    public int getSizeInBytes()
+    {
+        return HEADER_SIZE + 8 * words.length;
+    }
+
+    public byte[] toBytes()
+    {
+        ByteBuffer data = ByteBuffer.allocate( getSizeInBytes() ).order( MoveLogFormat.BYTE_ORDER );
+
+        data.putInt( MAGIC );
+        data.putInt( VERSION );
+        data.putInt( towerCount );
+        data.putInt( diskCount );
+        data.putLong( moveCount );
+        data.putLong( fingerprint );
+        for ( long word : words )
+            data.putLong( word );
+
+        return data.array();
+    }
+
+    /**
+     * Reads a snapshot written by toBytes().
+     *
+     * @param bytes   The snapshot
+     * @return  The snapshot
+     */
+    public static HanoiSnapshot fromBytes( byte[] bytes ) throws IOException
+    {
+        ByteBuffer data = ByteBuffer.wrap( bytes ).order( MoveLogFormat.BYTE_ORDER );
+
+        if ( data.remaining() < HEADER_SIZE || data.getInt() != MAGIC )
+            throw new IOException( "Not a Hanoi snapshot" );
+        if ( data.getInt() != VERSION )
+            throw new IOException( "Unsupported snapshot version" );
+
+        int towerCount = data.getInt();
+        int diskCount = data.getInt();
+        long moveCount = data.getLong();
+        long fingerprint = data.getLong();
+
+        if ( towerCount < 1 || diskCount < 0 )
+            throw new IOException( "Damaged snapshot" );
+
+        if ( data.remaining() != 8L * wordCount( diskCount, 64 / bitsPerTower( towerCount )))
+            throw new IOException( "Damaged snapshot" );
+
+        long[] words = new long[data.remaining() / 8];
+        for ( int i = 0; i < words.length; i++ )
+            words[i] = data.getLong();
+
+        HanoiSnapshot snapshot = new HanoiSnapshot( towerCount, diskCount, moveCount, words );
+        if ( snapshot.fingerprint != fingerprint || !snapshot.isPacked() )
+            throw new IOException( "Damaged snapshot" );
+
+        return snapshot;
+    }
+
+    /** Same towers, disks and disk towers.  How many moves it took to get there doesn't matter. */
+    @Override
+    public boolean equals( Object other )
+    {
+        if ( !( other instanceof HanoiSnapshot ))
+            return false;
+
+        HanoiSnapshot snapshot = (HanoiSnapshot)other;
+        return towerCount == snapshot.towerCount && diskCount == snapshot.diskCount
+               && Arrays.equals( words, snapshot.words );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        long hash = fingerprint;
+        return (int)( hash ^ ( hash >>> 32 ));
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Towers: " + towerCount + "  Disks: " + diskCount + "  Moves: " + moveCount
+               + "  Fingerprint: " + Long.toHexString( fingerprint );
+    }
+
+    private int shift( int diskId )
+    {
+        return ( ( diskId - 1 ) % towersPerWord ) * bitsPerTower;
+    }
+
+    /** True when every tower exists and the bits past the last disk are clear, the way pack() leaves them */
+    private boolean isPacked()
+    {
+        int[] diskTower = getDiskTowers();
+
+        for ( int d = 1; d <= diskCount; d++ )
+        {
+            if ( diskTower[d] > towerCount )
+                return false;
+        }
+        return Arrays.equals( words, pack( towerCount, diskTower ));
+    }
+
+    /** Packs the towers of the disks, tower - 1 in each digit */
+    private static long[] pack( int towerCount, int[] diskTower )
+    {
+        if ( towerCount < 1 || diskTower.length < 1 )
+            throw new IllegalArgumentException( "Bad system: " + towerCount + " towers and " + ( diskTower.length - 1 ) + " disks" );
+
+        int bitsPerTower = bitsPerTower( towerCount );
+        int towersPerWord = 64 / bitsPerTower;
+        long[] words = new long[wordCount( diskTower.length - 1, towersPerWord )];
+
+        for ( int d = 1; d < diskTower.length; d++ )
+        {
+            if ( diskTower[d] < 1 || diskTower[d] > towerCount )
+                throw new IllegalArgumentException( "Disk " + d + " is on a tower that does not exist: " + diskTower[d] );
+
+            words[( d - 1 ) / towersPerWord] |= (long)( diskTower[d] - 1 ) << ( ( ( d - 1 ) % towersPerWord ) * bitsPerTower );
+        }
+        return words;
+    }
+
+    private static int bitsPerTower( int towerCount )
+    {
+        return Math.max( 1, 32 - Integer.numberOfLeadingZeros( towerCount - 1 ));
+    }
+
+    private static int wordCount( int diskCount, int towersPerWord )
+    {
+        return ( diskCount + towersPerWord - 1 ) / towersPerWord;
+    }
+}
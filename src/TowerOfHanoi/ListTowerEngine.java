@@ -0,0 +1,121 @@
+package TowerOfHanoi;
+
+/**
+ * ListTowerEngine:  The original engine where each tower is a Tower object holding a list of Disk objects.
+ */
+public class ListTowerEngine implements TowerEngine
+{
+    private int towerCount;
+    private int diskCount;
+    private Tower[] towers;
+    private Disk[] disks;
+
+    /** Builds the towers and stacks all the disks on tower 1 */
+    public ListTowerEngine( int towers, int discs )
+    {
+        this.towerCount = towers;
+        this.diskCount = discs;
+
+        this.towers = new Tower[towerCount + 1];
+        this.disks = new Disk[diskCount + 1];
+
+        // Fill the array with towers
+        for ( int i = 0; i < towerCount; i++ )
+            this.towers[i + 1] = new Tower( i + 1 );
+
+        // Fill the source tower with the initial setup and populate a vector to find the Disks int the towers
+        for ( int i = ( diskCount - 1 ); i >= 0; i-- )
+        {
+            Disk newDisk = new Disk( i + 1 );
+            disks[i + 1] = newDisk;
+            this.towers[1].pushDisk( newDisk );
+        }
+    }
+
+    public int getTowerCount()
+    {
+        return towerCount;
+    }
+
+    public int getDiskCount()
+    {
+        return diskCount;
+    }
+
+    public int getDiskCount( int towerId )
+    {
+        return towers[towerId].getDiskCount();
+    }
+
+    public boolean isEmpty( int towerId )
+    {
+        return towers[towerId].isEmpty();
+    }
+
+    public int getTopDisk( int towerId )
+    {
+        Disk topDisk = towers[towerId].getTopDisk();
+
+        if ( topDisk == null )
+            return 0;
+        else
+            return topDisk.getId();
+    }
+
+    public int getDiskAt( int towerId, int index )
+    {
+        return towers[towerId].disks.get( index ).getId();
+    }
+
+    public int getDiskTower( int diskId )
+    {
+        // The disks don't know where they are, so look through the towers for it.
+        for ( int t = 1; t <= towerCount; t++ )
+        {
+            if ( towers[t].disks.contains( disks[diskId] ) )
+                return t;
+        }
+        return 0;
+    }
+
+    public int moveDisk( int fromTowerId, int toTowerId )
+    {
+        Disk moveDisk = towers[fromTowerId].popDisk();
+
+        if ( moveDisk == null )
+            return 0;
+
+        towers[toTowerId].pushDisk( moveDisk );
+
+        return moveDisk.getId();
+    }
+
+    public void setConfiguration( int[] diskTower )
+    {
+        if ( diskTower.length != diskCount + 1 )
+            throw new IllegalArgumentException( "Need a tower for each of the " + diskCount + " disks" );
+
+        for ( int d = 1; d <= diskCount; d++ )
+        {
+            if ( diskTower[d] < 1 || diskTower[d] > towerCount )
+                throw new IllegalArgumentException( "Disk " + d + " is on a tower that does not exist: " + diskTower[d] );
+        }
+
+        for ( int t = 1; t <= towerCount; t++ )
+            towers[t].disks.clear();
+
+        // The top of a tower is the front of its list, so adding the smallest disk first puts it on top
+        for ( int d = 1; d <= diskCount; d++ )
+            towers[diskTower[d]].disks.add( disks[d] );
+    }
+
+    /** Walks the towers, since the disks don't know where they are */
+    public void getConfiguration( int[] diskTower )
+    {
+        for ( int t = 1; t <= towerCount; t++ )
+        {
+            for ( Disk disk : towers[t].disks )
+                diskTower[disk.getId()] = t;
+        }
+    }
+}
@@ -9,7 +9,25 @@ public class Main {
 
 
     public static void main(String[] args) {
-	// write your code here
+        // Any arguments mean a run with no prompting.  Streaming solves a single instance of any size,
+        //   optimal prints the fewest moves of the small ones and serve streams solutions over HTTP.
+        if ( args.length > 0 && args[0].equals( "--stream" ))
+        {
+            exit( StreamingSolver.run( args ));
+        }
+        else if ( args.length > 0 && args[0].equals( "--optimal" ))
+        {
+            exit( OptimalSearch.run( args ));
+        }
+        else if ( args.length > 0 && args[0].equals( "--serve" ))
+        {
+            exit( SolutionServer.run( args ));
+        }
+        else if ( args.length > 0 )
+        {
+            exit( BatchSolver.run( args ));
+        }
+
         String towerInput;
         String diskInput;
         Integer towerCount = 0;
@@ -0,0 +1,30 @@
+package TowerOfHanoi;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * MoveBlockEvent:  JFR event recorded by SolveMetrics once per block of moves.
+ */
+@Name( "TowerOfHanoi.MoveBlock" )
+@Label( "Move Block" )
+@Category( "Tower of Hanoi" )
+@Description( "A block of disk moves made by Hanoi.solve()" )
+@StackTrace( false )
+final class MoveBlockEvent extends jdk.jfr.Event
+{
+    @Label( "Phase" )
+    String phase;
+
+    @Label( "Moves In Block" )
+    long moves;
+
+    @Label( "Total Moves" )
+    long totalMoves;
+
+    @Label( "Progress" )
+    double progress;
+}
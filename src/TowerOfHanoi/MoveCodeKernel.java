@@ -0,0 +1,136 @@
+package TowerOfHanoi;
+
+/**
+ * MoveCodeKernel:  Fills a byte buffer with the move codes of a run of consecutive moves of the 3 tower
+ *    solution, the same moves TraditionalHanoiIndex numbers.   Each code is the MoveLogFormat code
+ *    ( from - 1 ) * 3 + ( to - 1 ), so a buffer can go straight into a move log.   Nothing is simulated,
+ *    each code is worked out from the trailing zeros of its move number and which way its disk cycles.
+ *
+ *    create() hands back a kernel that works out many codes per instruction with the Vector API when the
+ *    JVM was started with --add-modules jdk.incubator.vector, and this scalar one otherwise.   Both fill
+ *    in exactly the same codes.
+ */
+public class MoveCodeKernel
+{
+    private static final String VECTOR_KERNEL = "TowerOfHanoi.VectorMoveCodeKernel";
+
+    protected final int diskCount;
+    protected final long moveCount;
+
+    // The code for each ( cycle, position ) as 4 bit fields, indexed by 3 * cycle + position.  Cycle 0 is
+    //   the forward cycle of the disks with the same parity as the disk count, cycle 1 the backward one.
+    protected final long codeTable;
+
+    /**
+     * Picks the fastest kernel the JVM can run.
+     *
+     * @param diskCount  Disks on the source tower
+     * @param srcTower   Source Tower
+     * @param wrkTower   Working Tower
+     * @param dstTower   Destination Tower
+     * @return  The kernel, vectorized when the Vector API is there
+     */
+    public static MoveCodeKernel create( int diskCount, int srcTower, int wrkTower, int dstTower )
+    {
+        try
+        {
+            Class<?> vectorKernel = Class.forName( VECTOR_KERNEL );
+            MoveCodeKernel kernel = (MoveCodeKernel)vectorKernel
+                    .getConstructor( int.class, int.class, int.class, int.class )
+                    .newInstance( diskCount, srcTower, wrkTower, dstTower );
+
+            if ( kernel.isVectorized() )
+                return kernel;
+        }
+        catch ( ReflectiveOperationException | LinkageError e )
+        {
+            // No jdk.incubator.vector module, fall back to the scalar kernel
+        }
+
+        return new MoveCodeKernel( diskCount, srcTower, wrkTower, dstTower );
+    }
+
+    /**
+     * A scalar kernel for the moves processTowerHanoi( srcTower, wrkTower, dstTower ) makes.
+     *
+     * @param diskCount  Disks on the source tower
+     * @param srcTower   Source Tower
+     * @param wrkTower   Working Tower
+     * @param dstTower   Destination Tower
+     */
+    public MoveCodeKernel( int diskCount, int srcTower, int wrkTower, int dstTower )
+    {
+        if ( diskCount < 0 )
+            throw new IllegalArgumentException( "Disk count out of range: " + diskCount );
+
+        this.diskCount = diskCount;
+        this.moveCount = ( diskCount >= 63 ) ? Long.MAX_VALUE : ( 1L << diskCount ) - 1;
+
+        int[][] cycles = { { srcTower, dstTower, wrkTower }, { srcTower, wrkTower, dstTower } };
+        long table = 0;
+        for ( int cycle = 0; cycle < 2; cycle++ )
+        {
+            for ( int position = 0; position < 3; position++ )
+            {
+                long code = MoveLogFormat.encodeMove( 3, cycles[cycle][position], cycles[cycle][( position + 1 ) % 3] );
+                table |= code << ( 4 * ( 3 * cycle + position ));
+            }
+        }
+        this.codeTable = table;
+    }
+
+    public int getDiskCount()
+    {
+        return diskCount;
+    }
+
+    /** @return The number of moves in the solution, held at Long.MAX_VALUE for 63 or more disks */
+    public long getMoveCount()
+    {
+        return moveCount;
+    }
+
+    /** @return True when the codes are worked out with the Vector API */
+    public boolean isVectorized()
+    {
+        return false;
+    }
+
+    /**
+     * Fills in the codes of count moves starting at firstMove.
+     *
+     * @param firstMove  First move number, from 1
+     * @param codes      Receives the codes
+     * @param offset     Where in codes the first move's code goes
+     * @param count      Number of moves
+     */
+    public void fill( long firstMove, byte[] codes, int offset, int count )
+    {
+        checkRange( firstMove, codes, offset, count );
+        fillScalar( firstMove, codes, offset, count );
+    }
+
+    /** The code of a single move */
+    protected final int code( long k )
+    {
+        int disk = Long.numberOfTrailingZeros( k ) + 1;
+        int position = (int)( ( k >>> disk ) % 3 );
+        int cycle = ( diskCount - disk ) & 1;
+
+        return (int)( codeTable >>> ( 4 * ( 3 * cycle + position ))) & 0xF;
+    }
+
+    protected final void fillScalar( long firstMove, byte[] codes, int offset, int count )
+    {
+        for ( int i = 0; i < count; i++ )
+            codes[offset + i] = (byte)code( firstMove + i );
+    }
+
+    protected final void checkRange( long firstMove, byte[] codes, int offset, int count )
+    {
+        if ( offset < 0 || count < 0 || offset > codes.length - count )
+            throw new IndexOutOfBoundsException( "Buffer range " + offset + " + " + count + " of " + codes.length );
+        if ( count > 0 && ( firstMove < 1 || firstMove - 1 > moveCount - count ))
+            throw new IllegalArgumentException( "Moves out of range: " + firstMove + " + " + count );
+    }
+}
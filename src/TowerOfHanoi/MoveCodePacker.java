@@ -0,0 +1,49 @@
+package TowerOfHanoi;
+
+/**
+ * MoveCodePacker:  Packs move codes into longs the way a binary move log holds them ( see MoveLogFormat ),
+ *    lowest bits first with a code split across two longs when it doesn't fit in the first.   Each long is
+ *    handed to putLong() once it is full, the writers of packed moves decide where it goes.
+ */
+abstract class MoveCodePacker
+{
+    final int bitsPerMove;
+
+    private long pendingBits = 0;       // Codes not yet handed on, lowest bits first
+    private int pendingBitCount = 0;
+
+    /** @param towerCount  Towers in the system */
+    MoveCodePacker( int towerCount )
+    {
+        this.bitsPerMove = MoveLogFormat.bitsPerMove( towerCount );
+    }
+
+    /** Adds a move code, handing the long on when it fills */
+    final void putCode( long code )
+    {
+        pendingBits |= code << pendingBitCount;
+        pendingBitCount += bitsPerMove;
+
+        // A long is full, hand it on and keep the bits of the code that did not fit
+        if ( pendingBitCount >= 64 )
+        {
+            putLong( pendingBits );
+            pendingBitCount -= 64;
+            pendingBits = ( pendingBitCount == 0 ) ? 0 : code >>> ( bitsPerMove - pendingBitCount );
+        }
+    }
+
+    /** Hands on the partly filled long, if there is one.  Later codes start a new long. */
+    final void putLastLong()
+    {
+        if ( pendingBitCount > 0 )
+        {
+            putLong( pendingBits );
+            pendingBits = 0;
+            pendingBitCount = 0;
+        }
+    }
+
+    /** Takes the next full long of codes */
+    abstract void putLong( long value );
+}
@@ -0,0 +1,104 @@
+package TowerOfHanoi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * MoveLogFormat:  Layout of the binary move log.
+ *
+ *    The file starts with a fixed header:
+ *        int   magic "HNOI"
+ *        int   format version
+ *        int   tower count
+ *        int   disk count
+ *        int   SolutionType ordinal
+ *        int   bits per move
+ *        long  move count
+ *    followed by the moves packed into little endian longs, lowest bits first.   Each move is the code
+ *    ( from - 1 ) * towers + ( to - 1 ) in just enough bits to hold towers * towers codes, so 7 bits with
+ *    10 towers.   The disk moved is not stored as it is always the top disk of the from tower.
+ *
+ *    The moves may be followed by checkpoints, the tower of every disk as a short after each whole
+ *    interval of moves, and a footer:
+ *        long  checkpoint interval in moves
+ *        int   checkpoint count
+ *        int   magic "HNCK"
+ *    Checkpoints let a long log be checked in pieces in parallel.
+ */
+public final class MoveLogFormat
+{
+    public static final int MAGIC = 0x484E4F49;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int CHECKPOINT_MAGIC = 0x484E434B;
+    public static final int FOOTER_SIZE = 16;
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private MoveLogFormat()
+    {
+    }
+
+    /** @return The number of bits each move code takes for this many towers */
+    public static int bitsPerMove( int towerCount )
+    {
+        return Math.max( 1, 64 - Long.numberOfLeadingZeros( (long)towerCount * towerCount - 1 ));
+    }
+
+    /** @return The code stored for a move */
+    public static long encodeMove( int towerCount, int fromTowerId, int toTowerId )
+    {
+        return (long)( fromTowerId - 1 ) * towerCount + ( toTowerId - 1 );
+    }
+
+    public static int decodeFromTower( int towerCount, long code )
+    {
+        return (int)( code / towerCount ) + 1;
+    }
+
+    public static int decodeToTower( int towerCount, long code )
+    {
+        return (int)( code % towerCount ) + 1;
+    }
+
+    /** @return The bytes of packed moves, always whole longs */
+    public static long dataSize( int bitsPerMove, long moveCount )
+    {
+        return ( ( moveCount * bitsPerMove + 63 ) >>> 6 ) << 3;
+    }
+
+    /** @return The bytes one checkpoint takes */
+    public static long checkpointSize( int diskCount )
+    {
+        return 2L * diskCount;
+    }
+
+    /** Builds the header for a log */
+    public static ByteBuffer writeHeader( int towerCount, int diskCount, Hanoi.SolutionType solutionType,
+                                          long moveCount )
+    {
+        ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE ).order( BYTE_ORDER );
+
+        header.putInt( MAGIC );
+        header.putInt( VERSION );
+        header.putInt( towerCount );
+        header.putInt( diskCount );
+        header.putInt( solutionType.ordinal() );
+        header.putInt( bitsPerMove( towerCount ));
+        header.putLong( moveCount );
+        header.flip();
+
+        return header;
+    }
+
+    /** Checks a header read from a log is one we understand */
+    public static void checkHeader( ByteBuffer header ) throws IOException
+    {
+        if ( header.getInt( 0 ) != MAGIC )
+            throw new IOException( "Not a move log" );
+        if ( header.getInt( 4 ) != VERSION )
+            throw new IOException( "Unsupported move log version: " + header.getInt( 4 ));
+        if ( header.getInt( 20 ) != bitsPerMove( header.getInt( 8 )))
+            throw new IOException( "Move log bits per move does not match its tower count" );
+    }
+}
@@ -0,0 +1,210 @@
+package TowerOfHanoi;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * MoveLogReader:  Reads a binary move log ( see MoveLogFormat ) through memory mapped regions and replays
+ *    its moves.
+ */
+public class MoveLogReader implements Closeable
+{
+    // Regions are whole longs and stay under the 2GB mapping limit
+    private static final long REGION_SIZE = 1L << 30;
+
+    /** Receives the moves read from a log */
+    public interface MoveVisitor
+    {
+        void move( int fromTowerId, int toTowerId );
+    }
+
+    private final FileChannel channel;
+    private final int towerCount;
+    private final int diskCount;
+    private final Hanoi.SolutionType solutionType;
+    private final int bitsPerMove;
+    private final long moveCount;
+    private final MappedByteBuffer[] regions;
+
+    private long checkpointInterval = 0;
+    private int checkpointCount = 0;
+    private long checkpointStart;          // File position of the first checkpoint
+
+    public MoveLogReader( Path file ) throws IOException
+    {
+        channel = FileChannel.open( file, StandardOpenOption.READ );
+
+        ByteBuffer header = ByteBuffer.allocate( MoveLogFormat.HEADER_SIZE ).order( MoveLogFormat.BYTE_ORDER );
+        readFully( header, 0 );
+        MoveLogFormat.checkHeader( header );
+
+        towerCount = header.getInt( 8 );
+        diskCount = header.getInt( 12 );
+        solutionType = Hanoi.SolutionType.values()[header.getInt( 16 )];
+        bitsPerMove = header.getInt( 20 );
+        moveCount = header.getLong( 24 );
+
+        long dataSize = MoveLogFormat.dataSize( bitsPerMove, moveCount );
+        if ( channel.size() < MoveLogFormat.HEADER_SIZE + dataSize )
+            throw new IOException( "Move log is cut short" );
+
+        regions = new MappedByteBuffer[(int)( ( dataSize + REGION_SIZE - 1 ) / REGION_SIZE )];
+        for ( int r = 0; r < regions.length; r++ )
+        {
+            long start = r * REGION_SIZE;
+            regions[r] = channel.map( FileChannel.MapMode.READ_ONLY, MoveLogFormat.HEADER_SIZE + start,
+                                      Math.min( REGION_SIZE, dataSize - start ));
+            regions[r].order( MoveLogFormat.BYTE_ORDER );
+        }
+
+        // Anything past the moves is the checkpoints and their footer
+        checkpointStart = MoveLogFormat.HEADER_SIZE + dataSize;
+        if ( channel.size() >= checkpointStart + MoveLogFormat.FOOTER_SIZE )
+        {
+            ByteBuffer footer = ByteBuffer.allocate( MoveLogFormat.FOOTER_SIZE ).order( MoveLogFormat.BYTE_ORDER );
+            readFully( footer, channel.size() - MoveLogFormat.FOOTER_SIZE );
+
+            if ( footer.getInt( 12 ) != MoveLogFormat.CHECKPOINT_MAGIC )
+                throw new IOException( "Move log has unknown data after the moves" );
+
+            checkpointInterval = footer.getLong( 0 );
+            checkpointCount = footer.getInt( 8 );
+        }
+    }
+
+    public int getTowerCount()
+    {
+        return towerCount;
+    }
+
+    public int getDiskCount()
+    {
+        return diskCount;
+    }
+
+    public Hanoi.SolutionType getSolutionType()
+    {
+        return solutionType;
+    }
+
+    public long getMoveCount()
+    {
+        return moveCount;
+    }
+
+    /** @return Moves between checkpoints, 0 when the log has none */
+    public long getCheckpointInterval()
+    {
+        return checkpointInterval;
+    }
+
+    public int getCheckpointCount()
+    {
+        return checkpointCount;
+    }
+
+    /**
+     * Reads the towers stored after ( checkpoint + 1 ) * interval moves.
+     *
+     * @param checkpoint  Checkpoint number from 0
+     * @return The tower of each disk indexed by disk id.  Index 0 is unused.
+     */
+    public int[] getCheckpoint( int checkpoint ) throws IOException
+    {
+        if ( checkpoint < 0 || checkpoint >= checkpointCount )
+            throw new IllegalArgumentException( "No checkpoint " + checkpoint );
+
+        ByteBuffer towers = ByteBuffer.allocate( (int)MoveLogFormat.checkpointSize( diskCount ))
+                                      .order( MoveLogFormat.BYTE_ORDER );
+        readFully( towers, checkpointStart + checkpoint * MoveLogFormat.checkpointSize( diskCount ));
+
+        int[] diskTower = new int[diskCount + 1];
+        for ( int d = 1; d <= diskCount; d++ )
+            diskTower[d] = towers.getShort( 2 * ( d - 1 ));
+
+        return diskTower;
+    }
+
+    /**
+     * Reads a run of moves in order.
+     *
+     * @param firstMove  Index of the first move to read, from 0
+     * @param lastMove   Index one past the last move to read
+     * @param visitor    Receives the moves
+     */
+    public void readMoves( long firstMove, long lastMove, MoveVisitor visitor )
+    {
+        if ( firstMove < 0 || lastMove > moveCount || firstMove > lastMove )
+            throw new IllegalArgumentException( "Bad move range: " + firstMove + " to " + lastMove );
+
+        long mask = ( 1L << bitsPerMove ) - 1;
+        long bitPosition = firstMove * bitsPerMove;
+        long wordIndex = bitPosition >>> 6;
+        int bitOffset = (int)( bitPosition & 63 );
+        long word = ( firstMove < lastMove ) ? getWord( wordIndex ) : 0;
+
+        for ( long m = firstMove; m < lastMove; m++ )
+        {
+            long code = word >>> bitOffset;
+            bitOffset += bitsPerMove;
+
+            // The code runs into the next long, or uses up this one
+            if ( bitOffset >= 64 )
+            {
+                bitOffset -= 64;
+                wordIndex++;
+                word = ( m + 1 < lastMove || bitOffset > 0 ) ? getWord( wordIndex ) : 0;
+                if ( bitOffset > 0 )
+                    code |= word << ( bitsPerMove - bitOffset );
+            }
+            code &= mask;
+
+            visitor.move( MoveLogFormat.decodeFromTower( towerCount, code ),
+                          MoveLogFormat.decodeToTower( towerCount, code ));
+        }
+    }
+
+    /**
+     * Makes every move in the log on a Hanoi instance.  The instance's move sink sees the moves with the
+     *   disk ids filled in.
+     *
+     * @param hanoi   Should have the same towers and disks as the log and not be moved yet.
+     * @return The number of moves replayed
+     */
+    public long replay( Hanoi hanoi )
+    {
+        if ( hanoi.getTowerCount() != towerCount || hanoi.getDiskCount() != diskCount )
+            throw new IllegalArgumentException( "Hanoi does not match the move log" );
+
+        readMoves( 0, moveCount, hanoi::moveDisk );
+        hanoi.getMoveSink().flush();
+
+        return moveCount;
+    }
+
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    private void readFully( ByteBuffer buffer, long position ) throws IOException
+    {
+        while ( buffer.hasRemaining() )
+        {
+            if ( channel.read( buffer, position + buffer.position() ) < 0 )
+                throw new IOException( "Move log is cut short" );
+        }
+    }
+
+    private long getWord( long wordIndex )
+    {
+        long byteIndex = wordIndex << 3;
+
+        return regions[(int)( byteIndex / REGION_SIZE )].getLong( (int)( byteIndex % REGION_SIZE ));
+    }
+}
@@ -0,0 +1,197 @@
+package TowerOfHanoi;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * MoveLogWriter:  Writes the moves it is given to a binary move log ( see MoveLogFormat ).   The file is
+ *    written through memory mapped regions that are mapped one after another as the log grows.   The move
+ *    count in the header is filled in and the file is cut to size when the writer is closed.
+ *
+ *    When a checkpoint interval is set, the writer follows the tower of every disk from the moves it is
+ *    given, which assumes the log starts with all the disks on tower 1, and stores the towers after every
+ *    interval of moves.
+ */
+public class MoveLogWriter extends MoveCodePacker implements MoveSink, Closeable
+{
+    public static final int DEFAULT_REGION_SIZE = 1 << 26;
+
+    private final FileChannel channel;
+    private final int towerCount;
+    private final int diskCount;
+    private final Hanoi.SolutionType solutionType;
+    private final int regionSize;
+
+    private MappedByteBuffer region;
+    private long regionStart;           // File position of the start of the mapped region
+
+    private long moveCount = 0;
+    private boolean closed = false;
+
+    private long checkpointInterval = 0;                      // 0 when no checkpoints are kept
+    private short[] diskTower;                                // Tower of each disk for the checkpoints
+    private final List<short[]> checkpoints = new ArrayList<short[]>();
+
+    /** Creates a log for the moves of a Hanoi instance.  Set the writer as its move sink. */
+    public MoveLogWriter( Path file, Hanoi hanoi ) throws IOException
+    {
+        this( file, hanoi.getTowerCount(), hanoi.getDiskCount(), hanoi.getSolutionMethod(), DEFAULT_REGION_SIZE );
+    }
+
+    /**
+     * @param file          The log file.  It is replaced if it exists.
+     * @param towerCount    Towers in the system
+     * @param diskCount     Disks in the system
+     * @param solutionType  Recorded in the header
+     * @param regionSize    Bytes mapped at a time.  Rounded down to whole longs.
+     */
+    public MoveLogWriter( Path file, int towerCount, int diskCount, Hanoi.SolutionType solutionType,
+                          int regionSize ) throws IOException
+    {
+        super( towerCount );
+        this.towerCount = towerCount;
+        this.diskCount = diskCount;
+        this.solutionType = solutionType;
+        this.regionSize = Math.max( 8, regionSize & ~7 );
+
+        channel = FileChannel.open( file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                    StandardOpenOption.READ, StandardOpenOption.WRITE );
+
+        channel.write( MoveLogFormat.writeHeader( towerCount, diskCount, solutionType, 0 ), 0 );
+        mapRegion( MoveLogFormat.HEADER_SIZE );
+    }
+
+    public void move( int diskId, int fromTowerId, int toTowerId )
+    {
+        putCode( MoveLogFormat.encodeMove( towerCount, fromTowerId, toTowerId ));
+        moveCount++;
+
+        if ( checkpointInterval > 0 )
+        {
+            diskTower[diskId] = (short)toTowerId;
+            if ( moveCount % checkpointInterval == 0 )
+                checkpoints.add( diskTower.clone() );
+        }
+    }
+
+    /**
+     * Writes moves that are already codes, as MoveCodeKernel fills them in.   The codes carry no disks, so
+     *   this can't be used with checkpoints.
+     *
+     * @param codes   The move codes, ( from - 1 ) * towers + ( to - 1 )
+     * @param offset  Where in codes the first move is
+     * @param count   Number of moves
+     */
+    public void writeCodes( byte[] codes, int offset, int count )
+    {
+        if ( checkpointInterval > 0 )
+            throw new IllegalStateException( "Move codes can't be written to a log with checkpoints" );
+
+        for ( int i = offset; i < offset + count; i++ )
+            putCode( codes[i] & 0xFF );
+        moveCount += count;
+    }
+
+    public long getMoveCount()
+    {
+        return moveCount;
+    }
+
+    /**
+     * Keeps the tower of every disk after each interval of moves.  Set before any moves are written.
+     *
+     * @param checkpointInterval  Moves between checkpoints, 0 for none
+     */
+    public void setCheckpointInterval( long checkpointInterval )
+    {
+        if ( moveCount > 0 )
+            throw new IllegalStateException( "Checkpoints must be set up before moves are written" );
+
+        this.checkpointInterval = checkpointInterval;
+        diskTower = new short[diskCount + 1];
+        Arrays.fill( diskTower, (short)1 );
+    }
+
+    /** Writes the partly filled long and the header, then cuts the file to its real size */
+    public void close() throws IOException
+    {
+        if ( closed )
+            return;
+        closed = true;
+
+        putLastLong();
+
+        region.force();
+        region = null;
+
+        long dataEnd = MoveLogFormat.HEADER_SIZE + MoveLogFormat.dataSize( bitsPerMove, moveCount );
+
+        channel.write( MoveLogFormat.writeHeader( towerCount, diskCount, solutionType, moveCount ), 0 );
+        channel.truncate( dataEnd );
+
+        if ( checkpointInterval > 0 )
+            writeCheckpoints( dataEnd );
+
+        channel.close();
+    }
+
+    /** Puts the checkpoints and their footer after the moves */
+    private void writeCheckpoints( long position ) throws IOException
+    {
+        ByteBuffer checkpoint = ByteBuffer.allocate( (int)MoveLogFormat.checkpointSize( diskCount ))
+                                          .order( MoveLogFormat.BYTE_ORDER );
+
+        for ( short[] towers : checkpoints )
+        {
+            checkpoint.clear();
+            for ( int d = 1; d <= diskCount; d++ )
+                checkpoint.putShort( towers[d] );
+            checkpoint.flip();
+
+            while ( checkpoint.hasRemaining() )
+                position += channel.write( checkpoint, position );
+        }
+
+        ByteBuffer footer = ByteBuffer.allocate( MoveLogFormat.FOOTER_SIZE ).order( MoveLogFormat.BYTE_ORDER );
+        footer.putLong( checkpointInterval );
+        footer.putInt( checkpoints.size() );
+        footer.putInt( MoveLogFormat.CHECKPOINT_MAGIC );
+        footer.flip();
+        channel.write( footer, position );
+    }
+
+    void putLong( long value )
+    {
+        if ( !region.hasRemaining() )
+        {
+            try
+            {
+                mapRegion( regionStart + regionSize );
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+        region.putLong( value );
+    }
+
+    private void mapRegion( long start ) throws IOException
+    {
+        if ( region != null )
+            region.force();
+
+        region = channel.map( FileChannel.MapMode.READ_WRITE, start, regionSize );
+        region.order( MoveLogFormat.BYTE_ORDER );
+        regionStart = start;
+    }
+}
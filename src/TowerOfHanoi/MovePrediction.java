@@ -0,0 +1,73 @@
+package TowerOfHanoi;
+
+import java.math.BigInteger;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * MovePrediction:  The number of moves Hanoi.solve() will make in each phase, worked out by the
+ *    MovePredictor without solving.
+ */
+public class MovePrediction
+{
+    private static final BigInteger LONG_MAX = BigInteger.valueOf( Long.MAX_VALUE );
+
+    private final int towerCount;
+    private final int diskCount;
+    private final Hanoi.SolutionType solutionType;
+    private final Map<SolveMetrics.Phase, BigInteger> phaseMoves = new EnumMap<SolveMetrics.Phase, BigInteger>( SolveMetrics.Phase.class );
+    private BigInteger totalMoves = BigInteger.ZERO;
+
+    MovePrediction( int towerCount, int diskCount, Hanoi.SolutionType solutionType )
+    {
+        this.towerCount = towerCount;
+        this.diskCount = diskCount;
+        this.solutionType = solutionType;
+    }
+
+    void addPhase( SolveMetrics.Phase phase, BigInteger moves )
+    {
+        phaseMoves.merge( phase, moves, BigInteger::add );
+        totalMoves = totalMoves.add( moves );
+    }
+
+    public int getTowerCount()
+    {
+        return towerCount;
+    }
+
+    public int getDiskCount()
+    {
+        return diskCount;
+    }
+
+    public Hanoi.SolutionType getSolutionType()
+    {
+        return solutionType;
+    }
+
+    /** @return The exact moves made in a phase, 0 when the solution does not use it */
+    public BigInteger getPhaseMoves( SolveMetrics.Phase phase )
+    {
+        return phaseMoves.getOrDefault( phase, BigInteger.ZERO );
+    }
+
+    /** @return The exact moves made by the whole solve */
+    public BigInteger getExactTotalMoves()
+    {
+        return totalMoves;
+    }
+
+    /** @return The moves made by the whole solve, held at Long.MAX_VALUE when larger */
+    public long getTotalMoves()
+    {
+        return ( totalMoves.compareTo( LONG_MAX ) > 0 ) ? Long.MAX_VALUE : totalMoves.longValue();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Towers: " + towerCount + "  Disks: " + diskCount + "  Solution: " + solutionType
+               + "  Moves: " + totalMoves + "  Phases: " + phaseMoves;
+    }
+}
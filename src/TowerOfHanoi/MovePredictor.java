@@ -0,0 +1,155 @@
+package TowerOfHanoi;
+
+import java.math.BigInteger;
+
+/**
+ * MovePredictor:  Works out how many moves Hanoi.solve() makes, phase by phase, without making them.
+ *
+ *    ShiftAndStack moves every disk out and back, 2 * disks moves.   bufferDisks() is followed pile by pile:
+ *    pile t takes s = min( disks left, towers - t + 1 ) disks, spreading them costs s moves and stacking
+ *    the ones that did not land on tower t costs min( s, towers - t ) more.   processTowerHanoi() makes
+ *    2^left - 1 moves for the disks left on tower 1, and processBufferedDisks() makes 2 * s - 1 moves for
+ *    each pile left off the destination.   That is O( towers ) in all.   TradionalHanoi is 2^disks - 1
+ *    and FrameStewart comes from the FrameStewartPlanner table.
+ *
+ *    Runtimes are estimated from a moves per second rate, set or measured with calibrate().
+ */
+public class MovePredictor
+{
+    private volatile double movesPerSecond;
+
+    /** @param movesPerSecond  The rate used to estimate runtimes */
+    public MovePredictor( double movesPerSecond )
+    {
+        this.movesPerSecond = movesPerSecond;
+    }
+
+    /**
+     * Works out the moves for a problem using the solution calculateSolutionsType() would pick.
+     */
+    public static MovePrediction predict( int towerCount, int diskCount )
+    {
+        return predict( towerCount, diskCount, Hanoi.calculateSolutionsType( towerCount, diskCount ));
+    }
+
+    /**
+     * Works out the moves solve() makes for a problem with a given solution.
+     *
+     * @param towerCount    Towers in the system
+     * @param diskCount     Disks in the system, all starting on tower 1
+     * @param solutionType  How the problem is solved
+     * @return The moves in each phase
+     */
+    public static MovePrediction predict( int towerCount, int diskCount, Hanoi.SolutionType solutionType )
+    {
+        MovePrediction prediction = new MovePrediction( towerCount, diskCount, solutionType );
+
+        switch ( solutionType )
+        {
+            case ShiftAndStack:
+                prediction.addPhase( SolveMetrics.Phase.ShiftAndStack, BigInteger.valueOf( 2L * diskCount ));
+                break;
+
+            case BufferUnbuffer:
+                predictBuffered( prediction, towerCount, diskCount, towerCount );
+                break;
+
+            case BufferHanoiUnbuffer:
+                predictBuffered( prediction, towerCount, diskCount, towerCount - 2 );
+                break;
+
+            case TradionalHanoi:
+                prediction.addPhase( SolveMetrics.Phase.TowerHanoi, hanoiMoves( diskCount ));
+                break;
+
+            case FrameStewart:
+                prediction.addPhase( SolveMetrics.Phase.FrameStewart,
+                                     BigInteger.valueOf( FrameStewartPlanner.getMoveCount( diskCount, towerCount )));
+                break;
+
+            default:
+                break;
+        }
+
+        return prediction;
+    }
+
+    /** Follows bufferDisks(), processTowerHanoi() and processBufferedDisks() by pile sizes */
+    private static void predictBuffered( MovePrediction prediction, int towerCount, int diskCount, int maxTowerPile )
+    {
+        long bufferMoves = 0;
+        long unbufferMoves = 0;
+        int disksLeft = diskCount;
+
+        for ( int t = 2; t <= maxTowerPile && disksLeft > 0; t++ )
+        {
+            int pile = Math.min( disksLeft, towerCount - t + 1 );
+            disksLeft -= pile;
+
+            bufferMoves += pile + Math.min( pile, towerCount - t );
+
+            // The destination's own pile is already where it belongs
+            if ( t < towerCount )
+                unbufferMoves += 2L * pile - 1;
+        }
+
+        prediction.addPhase( SolveMetrics.Phase.BufferDisks, BigInteger.valueOf( bufferMoves ));
+        if ( prediction.getSolutionType() == Hanoi.SolutionType.BufferHanoiUnbuffer )
+            prediction.addPhase( SolveMetrics.Phase.TowerHanoi, hanoiMoves( disksLeft ));
+        prediction.addPhase( SolveMetrics.Phase.BufferedDisks, BigInteger.valueOf( unbufferMoves ));
+    }
+
+    private static BigInteger hanoiMoves( int disks )
+    {
+        return BigInteger.ONE.shiftLeft( disks ).subtract( BigInteger.ONE );
+    }
+
+    /**
+     * Measures the moves per second of a solve on the primitive engine with the moves counted.
+     *
+     * @param moves   About how many moves to time, at least a million is best
+     * @return A predictor using the measured rate
+     */
+    public static MovePredictor calibrate( long moves )
+    {
+        int disks = Math.max( 10, Math.min( 40, 64 - Long.numberOfLeadingZeros( moves )));
+        MovePredictor predictor = new MovePredictor( 0 );
+
+        // Once to warm up, once to time
+        for ( int run = 0; run < 2; run++ )
+        {
+            Hanoi hanoi = new Hanoi( 3, disks, Hanoi.EngineType.Primitive );
+            CountingMoveSink sink = new CountingMoveSink();
+            hanoi.setMoveSink( sink );
+
+            long start = System.nanoTime();
+            hanoi.solve();
+            long elapsed = Math.max( 1, System.nanoTime() - start );
+
+            predictor.movesPerSecond = sink.getMoveCount() * 1e9 / elapsed;
+        }
+        return predictor;
+    }
+
+    public double getMovesPerSecond()
+    {
+        return movesPerSecond;
+    }
+
+    public void setMovesPerSecond( double movesPerSecond )
+    {
+        this.movesPerSecond = movesPerSecond;
+    }
+
+    /** @return The seconds a solve is expected to take at the rate */
+    public double estimateSeconds( MovePrediction prediction )
+    {
+        return prediction.getExactTotalMoves().doubleValue() / movesPerSecond;
+    }
+
+    /** @return The seconds a solve is expected to take at the rate */
+    public double estimateSeconds( int towerCount, int diskCount )
+    {
+        return estimateSeconds( predict( towerCount, diskCount ));
+    }
+}
@@ -0,0 +1,166 @@
+package TowerOfHanoi;
+
+/**
+ * MoveScheduler:  Packs a move sequence into steps of moves that can all be made at the same time, for a
+ *    rig with more than one arm.   Two moves can share a step when they touch four different towers.   Moves
+ *    that share a tower keep their order, so each tower sees the same moves in the same order and the
+ *    schedule ends in the same place as the sequence.
+ *
+ *    Each move goes in the step after the later of the last steps its two towers were used in.   That puts
+ *    every move as early as it can go, and without a limit on moves per step the step count is the fewest
+ *    the sequence can be done in.   With a limit a move that finds its step full goes in the next step with
+ *    room, which is a good schedule but not always the shortest.
+ *
+ *    Steps are kept open in a window and handed on in order once no move can land in them, so memory stays
+ *    the same however long the sequence is.   A move that would fall more than the window behind the
+ *    newest step goes in the oldest open step instead.   flush() hands on every open step.   Tower ids have
+ *    to fit in 16 bits.
+ */
+public class MoveScheduler implements MoveSink
+{
+    /** Receives the schedule a step at a time */
+    public interface StepSink extends MoveSink
+    {
+        /**
+         * Called before the moves of each step.
+         *
+         * @param step  Step number from 1
+         */
+        void startStep( long step );
+    }
+
+    public static final int DEFAULT_WINDOW = 1 << 12;
+
+    // Moves kept in the window at most, the window is made smaller for large rigs
+    private static final int MAX_WINDOW_MOVES = 1 << 20;
+
+    private final StepSink target;
+    private final int maxMovesPerStep;
+    private final long[] lastStep;            // The last step each tower was used in, 0 when never used
+
+    private final int window;
+    private final long[][] stepMoves;         // The moves of each open step, packed like PipelinedMoveSink's
+    private final int[] stepMoveCount;
+
+    private long firstOpenStep = 1;
+    private long lastUsedStep = 0;
+    private long stepCount = 0;               // Steps handed on
+    private long moveCount = 0;
+
+    /**
+     * @param target           Receives the schedule
+     * @param towerCount       Towers in the system
+     * @param maxMovesPerStep  Most moves in a step, the number of arms.  0 for no limit.
+     */
+    public MoveScheduler( StepSink target, int towerCount, int maxMovesPerStep )
+    {
+        this( target, towerCount, maxMovesPerStep, DEFAULT_WINDOW );
+    }
+
+    /**
+     * @param target           Receives the schedule
+     * @param towerCount       Towers in the system
+     * @param maxMovesPerStep  Most moves in a step, the number of arms.  0 for no limit.
+     * @param window           Steps kept open
+     */
+    public MoveScheduler( StepSink target, int towerCount, int maxMovesPerStep, int window )
+    {
+        if ( towerCount < 2 || towerCount > 0xFFFF )
+            throw new IllegalArgumentException( "Tower count out of range: " + towerCount );
+        if ( maxMovesPerStep < 0 || window < 1 )
+            throw new IllegalArgumentException( "Moves per step and window can't be negative" );
+
+        // A step can't hold more moves than there are pairs of towers
+        int movesPerStep = towerCount / 2;
+        if ( maxMovesPerStep > 0 )
+            movesPerStep = Math.min( movesPerStep, maxMovesPerStep );
+
+        this.target = target;
+        this.maxMovesPerStep = movesPerStep;
+        this.lastStep = new long[towerCount + 1];
+        this.window = Math.max( 1, Math.min( window, MAX_WINDOW_MOVES / movesPerStep ));
+        this.stepMoves = new long[this.window][movesPerStep];
+        this.stepMoveCount = new int[this.window];
+    }
+
+    /** @return The most moves a step can hold */
+    public int getMaxMovesPerStep()
+    {
+        return maxMovesPerStep;
+    }
+
+    /** @return The steps handed on so far, all of them once flushed */
+    public long getStepCount()
+    {
+        return stepCount;
+    }
+
+    /** @return The moves scheduled so far */
+    public long getMoveCount()
+    {
+        return moveCount;
+    }
+
+    public void move( int diskId, int fromTowerId, int toTowerId )
+    {
+        long step = Math.max( Math.max( lastStep[fromTowerId], lastStep[toTowerId] ) + 1, firstOpenStep );
+
+        while ( true )
+        {
+            // Close the oldest steps until this one is in the window
+            while ( step - firstOpenStep >= window )
+                closeStep();
+
+            if ( stepMoveCount[slot( step )] < maxMovesPerStep )
+                break;
+            step++;
+        }
+
+        int slot = slot( step );
+        stepMoves[slot][stepMoveCount[slot]++] = ( (long)diskId << 32 ) | ( (long)fromTowerId << 16 ) | toTowerId;
+
+        lastStep[fromTowerId] = step;
+        lastStep[toTowerId] = step;
+        lastUsedStep = Math.max( lastUsedStep, step );
+        moveCount++;
+    }
+
+    /** Hands on every open step and flushes the target.  Later moves start in a new step. */
+    public void flush()
+    {
+        while ( firstOpenStep <= lastUsedStep )
+            closeStep();
+
+        target.flush();
+    }
+
+    public long getOutputPosition()
+    {
+        return target.getOutputPosition();
+    }
+
+    private int slot( long step )
+    {
+        return (int)( step % window );
+    }
+
+    /** Hands the oldest open step on, unless nothing landed in it */
+    private void closeStep()
+    {
+        int slot = slot( firstOpenStep );
+        int count = stepMoveCount[slot];
+
+        if ( count > 0 )
+        {
+            target.startStep( ++stepCount );
+            for ( int i = 0; i < count; i++ )
+            {
+                long move = stepMoves[slot][i];
+                target.move( (int)( move >>> 32 ), (int)( move >>> 16 ) & 0xFFFF, (int)move & 0xFFFF );
+            }
+            stepMoveCount[slot] = 0;
+        }
+
+        firstOpenStep++;
+    }
+}
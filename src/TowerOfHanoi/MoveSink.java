@@ -0,0 +1,31 @@
+package TowerOfHanoi;
+
+/**
+ * MoveSink:  Receives every disk move Hanoi makes as primitives.   Implementations decide what, if anything,
+ *    is done with the moves.
+ */
+public interface MoveSink
+{
+    /** Called once for each disk moved
+     *
+     * @param diskId        The disk that was moved.  This is the size of the disk.
+     * @param fromTowerId   The tower the disk was taken from.
+     * @param toTowerId     The tower the disk now sits on top of.
+     */
+    void move( int diskId, int fromTowerId, int toTowerId );
+
+    /** Pushes out anything the sink is holding on to.   Called when a solve completes. */
+    default void flush()
+    {
+    }
+
+    /** Where the output stands once flushed, so a checkpoint can keep it and a resumed solve can carry on
+     *    writing from there.
+     *
+     * @return Bytes written so far, or -1 when the sink does not keep count.
+     */
+    default long getOutputPosition()
+    {
+        return -1;
+    }
+}
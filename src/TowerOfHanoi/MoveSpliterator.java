@@ -0,0 +1,128 @@
+package TowerOfHanoi;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * MoveSpliterator:  Hands out the moves of a SolutionGrammar one at a time as they are asked for.   Moves
+ *    are expanded from the grammar a block at a time into a small buffer, so memory stays the same however
+ *    many moves there are.   A range splits in half by move number without expanding anything, which lets
+ *    a parallel stream work on every part of the solution at once.
+ */
+public class MoveSpliterator implements Spliterator<HanoiMove>
+{
+    // Moves expanded from the grammar at a time
+    private static final int BLOCK_SIZE = 1 << 10;
+
+    // Smallest range worth splitting
+    private static final long MIN_SPLIT = 1 << 12;
+
+    private final SolutionGrammar grammar;
+    private long nextMove;              // Next move to expand, after the buffered ones
+    private final long lastMove;
+
+    private int[] disks;
+    private int[] froms;
+    private int[] tos;
+    private int bufferCount = 0;
+    private int bufferPosition = 0;
+    private final MoveSink bufferSink = ( diskId, fromTowerId, toTowerId ) -> {
+        disks[bufferCount] = diskId;
+        froms[bufferCount] = fromTowerId;
+        tos[bufferCount] = toTowerId;
+        bufferCount++;
+    };
+
+    /**
+     * @param grammar     The solution
+     * @param firstMove   First move handed out, from 1
+     * @param lastMove    Last move handed out, included
+     */
+    public MoveSpliterator( SolutionGrammar grammar, long firstMove, long lastMove )
+    {
+        if ( firstMove < 1 || lastMove > grammar.getMoveCount() )
+            throw new IndexOutOfBoundsException( "Moves " + firstMove + " to " + lastMove + " of " + grammar.getMoveCount() );
+
+        this.grammar = grammar;
+        this.nextMove = firstMove;
+        this.lastMove = lastMove;
+    }
+
+    public boolean tryAdvance( Consumer<? super HanoiMove> action )
+    {
+        if ( bufferPosition == bufferCount )
+        {
+            if ( nextMove > lastMove )
+                return false;
+
+            fillBuffer();
+        }
+
+        action.accept( new HanoiMove( disks[bufferPosition], froms[bufferPosition], tos[bufferPosition] ));
+        bufferPosition++;
+        return true;
+    }
+
+    public void forEachRemaining( Consumer<? super HanoiMove> action )
+    {
+        while ( bufferPosition < bufferCount )
+        {
+            action.accept( new HanoiMove( disks[bufferPosition], froms[bufferPosition], tos[bufferPosition] ));
+            bufferPosition++;
+        }
+
+        if ( nextMove <= lastMove )
+        {
+            long first = nextMove;
+            nextMove = lastMove + 1;
+            grammar.generate( first, lastMove,
+                              ( diskId, fromTowerId, toTowerId ) -> action.accept( new HanoiMove( diskId, fromTowerId, toTowerId )));
+        }
+    }
+
+    /** Splits off the first half of the moves not handed out yet.  Anything buffered is expanded again. */
+    public Spliterator<HanoiMove> trySplit()
+    {
+        long first = nextMove - ( bufferCount - bufferPosition );
+        long remaining = lastMove - first + 1;
+
+        if ( remaining < 2 * MIN_SPLIT )
+            return null;
+
+        long middle = first + remaining / 2;
+        MoveSpliterator prefix = new MoveSpliterator( grammar, first, middle - 1 );
+
+        nextMove = middle;
+        bufferCount = 0;
+        bufferPosition = 0;
+        return prefix;
+    }
+
+    public long estimateSize()
+    {
+        return ( lastMove - nextMove + 1 ) + ( bufferCount - bufferPosition );
+    }
+
+    public int characteristics()
+    {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+
+    /** Expands the next block of moves into the buffer */
+    private void fillBuffer()
+    {
+        if ( disks == null )
+        {
+            disks = new int[BLOCK_SIZE];
+            froms = new int[BLOCK_SIZE];
+            tos = new int[BLOCK_SIZE];
+        }
+
+        long last = Math.min( lastMove, nextMove + BLOCK_SIZE - 1 );
+
+        bufferCount = 0;
+        bufferPosition = 0;
+        grammar.generate( nextMove, last, bufferSink );
+        nextMove = last + 1;
+    }
+}
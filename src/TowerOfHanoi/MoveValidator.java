@@ -0,0 +1,246 @@
+package TowerOfHanoi;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * MoveValidator:  Checks that a sequence of moves is legal.   Every move must take a disk from a tower that
+ *    has one and must not put a disk on top of a smaller one.   The towers are kept in a PrimitiveTowerEngine
+ *    so checking a move costs about as much as making it.
+ *
+ *    Use it as the move sink of a Hanoi instance to check a live run, or check a move log, in parallel when
+ *    the log has checkpoints.   The first bad move is kept and nothing after it is checked.
+ */
+public class MoveValidator implements MoveSink, MoveLogReader.MoveVisitor
+{
+    private final PrimitiveTowerEngine towers;
+    private long moveCount = 0;
+    private long errorMove = -1;        // Index of the first bad move from 0, -1 when there is none
+    private String error = null;
+
+    /** Starts with all the disks on tower 1 */
+    public MoveValidator( int towerCount, int diskCount )
+    {
+        towers = new PrimitiveTowerEngine( towerCount, diskCount );
+    }
+
+    /**
+     * Starts with the disks already placed.
+     *
+     * @param towerCount  Number of towers
+     * @param diskTower   The tower of each disk indexed by disk id.  Index 0 is unused.
+     */
+    public MoveValidator( int towerCount, int[] diskTower )
+    {
+        towers = new PrimitiveTowerEngine( towerCount, diskTower );
+    }
+
+    /** Checks a move reported by Hanoi, including that the disk is the one on top of the from tower */
+    public void move( int diskId, int fromTowerId, int toTowerId )
+    {
+        if ( error == null && checkTowers( fromTowerId, toTowerId ) && towers.getTopDisk( fromTowerId ) != diskId )
+            fail( "Disk " + diskId + " is not on top of tower " + fromTowerId );
+
+        makeMove( fromTowerId, toTowerId );
+    }
+
+    /** Checks a move read from a move log */
+    public void move( int fromTowerId, int toTowerId )
+    {
+        if ( error == null )
+            checkTowers( fromTowerId, toTowerId );
+
+        makeMove( fromTowerId, toTowerId );
+    }
+
+    /** @return True when every move so far was legal */
+    public boolean isValid()
+    {
+        return ( error == null );
+    }
+
+    /** @return What was wrong with the first bad move, null when there is none */
+    public String getError()
+    {
+        return error;
+    }
+
+    /** @return Index of the first bad move from 0, -1 when there is none */
+    public long getErrorMove()
+    {
+        return errorMove;
+    }
+
+    public long getMoveCount()
+    {
+        return moveCount;
+    }
+
+    /**
+     * Checks all the disks ended up on one tower.
+     *
+     * @param destinationTower  The tower the disks should be on
+     * @return True when the moves were legal and all the disks are on the tower
+     */
+    public boolean verifyFinal( int destinationTower )
+    {
+        if ( error == null && towers.getDiskCount( destinationTower ) != towers.getDiskCount() )
+            fail( "Not all the disks ended up on tower " + destinationTower );
+
+        return isValid();
+    }
+
+    /**
+     * Checks the disks ended up where they should be.
+     *
+     * @param diskTower   The tower each disk should be on indexed by disk id.  Index 0 is unused.
+     * @return True when the moves were legal and every disk is on its tower
+     */
+    public boolean verifyFinal( int[] diskTower )
+    {
+        for ( int d = 1; d <= towers.getDiskCount() && error == null; d++ )
+        {
+            if ( towers.getDiskTower( d ) != diskTower[d] )
+                fail( "Disk " + d + " ended up on tower " + towers.getDiskTower( d ) + " not " + diskTower[d] );
+        }
+
+        return isValid();
+    }
+
+    /**
+     * Checks a whole move log, made from all the disks on tower 1, ends with all the disks on the last tower.
+     *
+     * @param log   The log to check
+     * @return The validator after the last move
+     */
+    public static MoveValidator validate( MoveLogReader log )
+    {
+        MoveValidator validator = new MoveValidator( log.getTowerCount(), log.getDiskCount() );
+
+        log.readMoves( 0, log.getMoveCount(), validator );
+        validator.verifyFinal( log.getTowerCount() );
+
+        return validator;
+    }
+
+    /**
+     * Checks a move log in pieces on a pool, splitting it at its checkpoints.   Each piece starts from the
+     *   towers at the checkpoint before it and must end with the towers at the checkpoint after it, the last
+     *   piece must end with all the disks on the last tower.   Together that is the same as checking the
+     *   whole log in order.   A log without checkpoints is checked in one piece.
+     *
+     * @param log   The log to check
+     * @param pool  Where the pieces are checked
+     * @return The validator of the first piece that failed, or of the last piece when all are legal.  Its
+     *           error move is an index into the whole log.
+     */
+    public static MoveValidator validateParallel( MoveLogReader log, ForkJoinPool pool ) throws IOException
+    {
+        int towerCount = log.getTowerCount();
+        long interval = log.getCheckpointInterval();
+        int pieceCount = ( interval == 0 ) ? 1 : log.getCheckpointCount() + 1;
+
+        // Work out where every piece starts before handing them out
+        List<int[]> startTowers = new ArrayList<int[]>();
+        int[] initial = new int[log.getDiskCount() + 1];
+        for ( int d = 1; d < initial.length; d++ )
+            initial[d] = 1;
+        startTowers.add( initial );
+        for ( int c = 0; c < pieceCount - 1; c++ )
+            startTowers.add( log.getCheckpoint( c ));
+
+        List<Callable<MoveValidator>> pieces = new ArrayList<Callable<MoveValidator>>();
+        for ( int p = 0; p < pieceCount; p++ )
+        {
+            final int piece = p;
+            final long firstMove = p * interval;
+            final long lastMove = ( p == pieceCount - 1 ) ? log.getMoveCount() : firstMove + interval;
+
+            pieces.add( () -> {
+                MoveValidator validator = new MoveValidator( towerCount, startTowers.get( piece ));
+                validator.moveCount = firstMove;
+
+                log.readMoves( firstMove, lastMove, validator );
+
+                if ( piece == pieceCount - 1 )
+                    validator.verifyFinal( towerCount );
+                else
+                    validator.verifyFinal( startTowers.get( piece + 1 ));
+
+                return validator;
+            } );
+        }
+
+        MoveValidator result = null;
+        try
+        {
+            for ( Future<MoveValidator> piece : pool.invokeAll( pieces ))
+            {
+                result = piece.get();
+                if ( !result.isValid() )
+                    break;
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted checking the move log", e );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof UncheckedIOException )
+                throw ( (UncheckedIOException)e.getCause() ).getCause();
+            throw new IOException( "Failed checking the move log", e.getCause() );
+        }
+
+        return result;
+    }
+
+    /** Checks the towers exist, the from tower has a disk and the disk fits on the to tower */
+    private boolean checkTowers( int fromTowerId, int toTowerId )
+    {
+        int towerCount = towers.getTowerCount();
+
+        if ( fromTowerId < 1 || fromTowerId > towerCount || toTowerId < 1 || toTowerId > towerCount )
+        {
+            fail( "Tower out of range moving from " + fromTowerId + " to " + toTowerId );
+            return false;
+        }
+
+        int disk = towers.getTopDisk( fromTowerId );
+        int underDisk = towers.getTopDisk( toTowerId );
+
+        if ( disk == 0 )
+        {
+            fail( "Tower " + fromTowerId + " is empty" );
+            return false;
+        }
+        if ( underDisk != 0 && underDisk < disk && fromTowerId != toTowerId )
+        {
+            fail( "Disk " + disk + " can't go on top of disk " + underDisk + " on tower " + toTowerId );
+            return false;
+        }
+        return true;
+    }
+
+    /** Makes the move while the moves are still legal */
+    private void makeMove( int fromTowerId, int toTowerId )
+    {
+        if ( error == null )
+            towers.moveDisk( fromTowerId, toTowerId );
+
+        moveCount++;
+    }
+
+    private void fail( String message )
+    {
+        error = message;
+        errorMove = moveCount;
+    }
+}
@@ -0,0 +1,413 @@
+package TowerOfHanoi;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * OptimalSearch:  Finds the fewest moves that take every disk from tower 1 to the last tower by a breadth
+ *    first search of every position, so the solvers can be measured against the real optimum.
+ *
+ *    A position is packed into a long with a few bits per disk holding its tower.   The towers between the
+ *    first and the last are interchangeable, so they are relabeled in the order the largest disks use them
+ *    and positions that only differ by those labels are searched once.   The positions seen are kept in an
+ *    open addressing table of longs that threads add to with compare and swap, and each level of the
+ *    search is expanded in pieces on a ForkJoinPool.   Memory is 16 bytes a position plus the two levels
+ *    being worked on, so the positions are capped by a limit given up front.
+ */
+public class OptimalSearch
+{
+    public static final long DEFAULT_MAX_STATES = 1L << 24;
+
+    // Slots in the largest table, which is as big as an array gets
+    private static final int MAX_TABLE_SIZE = 1 << 30;
+
+    // Positions expanded by each piece of a level
+    private static final int CHUNK_SIZE = 1 << 12;
+
+    private final int towerCount;
+    private final int diskCount;
+    private final int bitsPerDisk;
+    private final long towerMask;
+
+    private AtomicLongArray seen;        // Position + 1, 0 for an empty slot
+    private int seenMask;
+    private long statesVisited;
+
+    /**
+     * @param towers  Number of towers
+     * @param disks   Number of disks.  The towers of all of them have to fit in 63 bits.
+     */
+    public OptimalSearch( int towers, int disks )
+    {
+        if ( towers < 3 || disks < 1 )
+            throw new IllegalArgumentException( "Need 3 or more towers and a disk" );
+
+        this.towerCount = towers;
+        this.diskCount = disks;
+        this.bitsPerDisk = 32 - Integer.numberOfLeadingZeros( towers - 1 );
+        this.towerMask = ( 1L << bitsPerDisk ) - 1;
+
+        if ( (long)bitsPerDisk * disks > 63 )
+            throw new IllegalArgumentException( disks + " disks on " + towers + " towers don't pack into a long" );
+    }
+
+    /**
+     * Counts the positions that differ by more than the labels of the middle towers, which is the most the
+     *    search can visit.
+     *
+     * @return The count, Long.MAX_VALUE when it doesn't fit in a long.
+     */
+    public static long countStates( int towers, int disks )
+    {
+        // states[k] counts the positions of the disks so far that use k of the middle towers
+        int middleTowers = towers - 2;
+        long[] states = new long[middleTowers + 1];
+        states[0] = 1;
+
+        for ( int d = 0; d < disks; d++ )
+        {
+            for ( int k = middleTowers; k >= 0; k-- )
+            {
+                // The disk goes on an end tower or a middle tower already used, or opens the next one
+                long stay = multiplyStates( states[k], 2 + k );
+                long open = ( k > 0 ) ? states[k - 1] : 0;
+                states[k] = addStates( stay, open );
+            }
+        }
+
+        long total = 0;
+        for ( long count : states )
+            total = addStates( total, count );
+
+        return total;
+    }
+
+    /** @return True when the search for this many towers and disks fits in the limit */
+    public static boolean fits( int towers, int disks, long maxStates )
+    {
+        int bits = 32 - Integer.numberOfLeadingZeros( towers - 1 );
+
+        return (long)bits * disks <= 63 && countStates( towers, disks ) <= maxStates;
+    }
+
+    public int getTowerCount()
+    {
+        return towerCount;
+    }
+
+    public int getDiskCount()
+    {
+        return diskCount;
+    }
+
+    /** @return The positions the last search added to its table */
+    public long getStatesVisited()
+    {
+        return statesVisited;
+    }
+
+    /** Searches on the common pool */
+    public long search()
+    {
+        return search( ForkJoinPool.commonPool(), DEFAULT_MAX_STATES );
+    }
+
+    /**
+     * Searches level by level until all the disks are on the last tower.
+     *
+     * @param pool       Expands the levels
+     * @param maxStates  The most positions the table is sized for
+     * @return  The fewest moves from every disk on tower 1 to every disk on the last tower.
+     */
+    public long search( ForkJoinPool pool, long maxStates )
+    {
+        long stateLimit = countStates( towerCount, diskCount );
+        if ( stateLimit > maxStates )
+            throw new IllegalArgumentException( "Up to " + stateLimit + " positions for " + towerCount
+                                                + " towers and " + diskCount + " disks, more than " + maxStates );
+
+        // Half full at most, so a probe stays short
+        if ( stateLimit > MAX_TABLE_SIZE / 2 )
+            throw new IllegalArgumentException( "Up to " + stateLimit + " positions is more than one table holds" );
+        int tableSize = Integer.highestOneBit( (int)Math.max( 1, 2 * stateLimit - 1 )) << 1;
+        seen = new AtomicLongArray( tableSize );
+        seenMask = tableSize - 1;
+
+        // Every disk on tower 1 packs to 0 and every disk on the last tower to all ones
+        long start = 0;
+        long goal = 0;
+        for ( int d = 0; d < diskCount; d++ )
+            goal |= (long)( towerCount - 1 ) << ( d * bitsPerDisk );
+
+        addSeen( start );
+        statesVisited = 1;
+
+        long[] frontier = { start };
+        long level = 0;
+
+        while ( frontier.length > 0 )
+        {
+            for ( long state : frontier )
+            {
+                if ( state == goal )
+                {
+                    seen = null;
+                    return level;
+                }
+            }
+
+            int chunkCount = (int)( ( frontier.length + (long)CHUNK_SIZE - 1 ) / CHUNK_SIZE );
+            long[][] nextChunks = new long[chunkCount][];
+            int[] nextCounts = new int[chunkCount];
+
+            pool.invoke( new ExpandTask( frontier, nextChunks, nextCounts, 0, chunkCount ));
+
+            // Join the pieces into the next level
+            long nextSize = 0;
+            for ( int count : nextCounts )
+                nextSize += count;
+
+            long[] next = new long[(int)nextSize];
+            int position = 0;
+            for ( int c = 0; c < chunkCount; c++ )
+            {
+                System.arraycopy( nextChunks[c], 0, next, position, nextCounts[c] );
+                position += nextCounts[c];
+            }
+
+            statesVisited += nextSize;
+            frontier = next;
+            level++;
+        }
+
+        seen = null;
+        return -1;
+    }
+
+    /** Adds a position to the table.
+     *
+     * @return True when it wasn't there before.
+     */
+    private boolean addSeen( long state )
+    {
+        long key = state + 1;
+        int slot = (int)mix( key ) & seenMask;
+
+        while ( true )
+        {
+            long current = seen.get( slot );
+
+            if ( current == key )
+                return false;
+
+            if ( current == 0 )
+            {
+                if ( seen.compareAndSet( slot, 0, key ))
+                    return true;
+
+                // Another thread took the slot, look at what it put there
+                continue;
+            }
+
+            slot = ( slot + 1 ) & seenMask;
+        }
+    }
+
+    /** Spreads the bits of a position over the table */
+    private static long mix( long key )
+    {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /**
+     * Relabels the middle towers in the order the disks use them from the largest down, so positions that
+     *    only differ by those labels pack the same.
+     *
+     * @param label   Scratch space with a slot per tower
+     */
+    private long canonical( long state, int[] label )
+    {
+        Arrays.fill( label, -1 );
+        int nextLabel = 1;
+        long result = 0;
+
+        for ( int d = diskCount - 1; d >= 0; d-- )
+        {
+            int shift = d * bitsPerDisk;
+            int tower = (int)( ( state >>> shift ) & towerMask );
+
+            if ( tower != 0 && tower != towerCount - 1 )
+            {
+                if ( label[tower] < 0 )
+                    label[tower] = nextLabel++;
+                tower = label[tower];
+            }
+
+            result |= (long)tower << shift;
+        }
+
+        return result;
+    }
+
+    /** Expands pieces of a level into the positions that are new */
+    private class ExpandTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] frontier;
+        private final long[][] nextChunks;
+        private final int[] nextCounts;
+        private final int firstChunk;
+        private final int endChunk;
+
+        ExpandTask( long[] frontier, long[][] nextChunks, int[] nextCounts, int firstChunk, int endChunk )
+        {
+            this.frontier = frontier;
+            this.nextChunks = nextChunks;
+            this.nextCounts = nextCounts;
+            this.firstChunk = firstChunk;
+            this.endChunk = endChunk;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if ( endChunk - firstChunk > 1 )
+            {
+                int middle = ( firstChunk + endChunk ) >>> 1;
+
+                invokeAll( new ExpandTask( frontier, nextChunks, nextCounts, firstChunk, middle ),
+                           new ExpandTask( frontier, nextChunks, nextCounts, middle, endChunk ));
+                return;
+            }
+
+            int first = firstChunk * CHUNK_SIZE;
+            int end = Math.min( frontier.length, first + CHUNK_SIZE );
+            int[] topDisk = new int[towerCount];
+            int[] label = new int[towerCount];
+            long[] next = new long[Math.max( 16, ( end - first ) * 2 )];
+            int count = 0;
+
+            for ( int i = first; i < end; i++ )
+            {
+                long state = frontier[i];
+
+                // The smallest disk on each tower, diskCount when it is empty
+                Arrays.fill( topDisk, diskCount );
+                for ( int d = diskCount - 1; d >= 0; d-- )
+                    topDisk[(int)( ( state >>> ( d * bitsPerDisk )) & towerMask )] = d;
+
+                for ( int from = 0; from < towerCount; from++ )
+                {
+                    int disk = topDisk[from];
+                    if ( disk == diskCount )
+                        continue;
+
+                    long shift = (long)disk * bitsPerDisk;
+                    long lifted = state & ~( towerMask << shift );
+
+                    for ( int to = 0; to < towerCount; to++ )
+                    {
+                        if ( topDisk[to] <= disk )
+                            continue;
+
+                        long moved = canonical( lifted | ( (long)to << shift ), label );
+
+                        if ( addSeen( moved ))
+                        {
+                            if ( count == next.length )
+                                next = Arrays.copyOf( next, count * 2 );
+                            next[count++] = moved;
+                        }
+                    }
+                }
+            }
+
+            nextChunks[firstChunk] = next;
+            nextCounts[firstChunk] = count;
+        }
+    }
+
+    /**
+     * Prints the fewest moves for every size that fits next to the moves the solvers make:
+     *     --optimal [--max-towers T] [--max-disks D] [--max-states N] [--parallel N]
+     *
+     * @return The exit code, 0 when the table was printed
+     */
+    public static int run( String[] args )
+    {
+        int maxTowers = 6;
+        int maxDisks = 10;
+        long maxStates = DEFAULT_MAX_STATES;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+
+        try
+        {
+            for ( int i = 1; i < args.length; i++ )
+            {
+                if ( args[i].equals( "--max-towers" ))
+                    maxTowers = Integer.parseInt( args[++i] );
+                else if ( args[i].equals( "--max-disks" ))
+                    maxDisks = Integer.parseInt( args[++i] );
+                else if ( args[i].equals( "--max-states" ))
+                    maxStates = Long.parseLong( args[++i] );
+                else if ( args[i].equals( "--parallel" ))
+                    parallelism = Integer.parseInt( args[++i] );
+                else
+                    throw new IllegalArgumentException( "Unknown option " + args[i] );
+            }
+
+            if ( parallelism < 1 )
+                throw new IllegalArgumentException( "Parallel must be positive" );
+        }
+        catch ( Exception e )
+        {
+            System.err.println( "Bad optimal arguments: " + e.getMessage() );
+            System.err.println( "Usage: --optimal [--max-towers T] [--max-disks D] [--max-states N] [--parallel N]" );
+            return 2;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool( parallelism );
+        try
+        {
+            System.out.println( "Towers\tDisks\tOptimal\tSolver\tFrameStewart\tPositions" );
+
+            for ( int t = 3; t <= maxTowers; t++ )
+            {
+                for ( int d = 1; d <= maxDisks && fits( t, d, maxStates ); d++ )
+                {
+                    OptimalSearch search = new OptimalSearch( t, d );
+                    long optimal = search.search( pool, maxStates );
+
+                    System.out.println( t + "\t" + d + "\t" + optimal
+                                        + "\t" + MovePredictor.predict( t, d ).getTotalMoves()
+                                        + "\t" + FrameStewartPlanner.getMoveCount( d, t )
+                                        + "\t" + search.getStatesVisited() );
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        return 0;
+    }
+
+    private static long addStates( long a, long b )
+    {
+        long sum = a + b;
+
+        return ( sum < 0 ) ? Long.MAX_VALUE : sum;
+    }
+
+    private static long multiplyStates( long a, int b )
+    {
+        return ( a > Long.MAX_VALUE / b ) ? Long.MAX_VALUE : a * b;
+    }
+}
@@ -0,0 +1,93 @@
+package TowerOfHanoi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * PackedMoveSink:  Writes the moves to a stream packed the way a binary move log holds them ( see
+ *    MoveLogFormat ), for when the moves go somewhere other than a file.   The packed longs are put in a
+ *    reused buffer little endian and the buffer is written out in large blocks.   Nothing is allocated
+ *    per move.
+ *
+ *    flush() only writes whole longs, so the packing carries on across it.   finish() writes the last,
+ *    partly filled long once every move has been made.
+ */
+public class PackedMoveSink extends MoveCodePacker implements MoveSink
+{
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream out;
+    private final int towerCount;
+    private final byte[] buffer;
+    private int position = 0;
+    private long written = 0;
+
+    /**
+     * @param out          Where the packed moves are written
+     * @param towerCount   Towers in the system
+     * @param bufferSize   Bytes held before writing them out.  Rounded down to whole longs.
+     */
+    public PackedMoveSink( OutputStream out, int towerCount, int bufferSize )
+    {
+        super( towerCount );
+        this.out = out;
+        this.towerCount = towerCount;
+        this.buffer = new byte[Math.max( 8, bufferSize & ~7 )];
+    }
+
+    public void move( int diskId, int fromTowerId, int toTowerId )
+    {
+        putCode( MoveLogFormat.encodeMove( towerCount, fromTowerId, toTowerId ));
+    }
+
+    /** Writes out the whole longs buffered and flushes the underlying stream */
+    public void flush()
+    {
+        writeBuffer();
+        try
+        {
+            out.flush();
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /** Writes the partly filled long, if there is one, and flushes.  No moves can follow. */
+    public void finish()
+    {
+        putLastLong();
+        flush();
+    }
+
+    public long getOutputPosition()
+    {
+        return written + position;
+    }
+
+    void putLong( long value )
+    {
+        if ( position == buffer.length )
+            writeBuffer();
+
+        for ( int i = 0; i < 8; i++ )
+            buffer[position++] = (byte)( value >>> ( 8 * i ));
+    }
+
+    /** Hands the filled part of the buffer to the stream and starts the buffer over */
+    private void writeBuffer()
+    {
+        try
+        {
+            out.write( buffer, 0, position );
+            written += position;
+            position = 0;
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+}
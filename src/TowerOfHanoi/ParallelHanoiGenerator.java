@@ -0,0 +1,164 @@
+package TowerOfHanoi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ParallelHanoiGenerator:  Produces the 3 tower move sequence on many threads.   The move numbers are split
+ *    into partitions and each partition starts straight from its first move using the TraditionalHanoiIndex,
+ *    so no partition waits for the moves before it.   Each partition writes to its own sink and the
+ *    partitions, taken in order, are exactly the sequence processTowerHanoi() makes.
+ */
+public class ParallelHanoiGenerator
+{
+    /** Makes the sink a partition writes its moves to. */
+    public interface PartitionSinkFactory
+    {
+        /**
+         * @param partition  Partition number from 0
+         * @param firstMove  First move number in the partition
+         * @param lastMove   Last move number in the partition
+         * @return  The sink for the partition.  It is flushed once the partition is done.
+         */
+        MoveSink createSink( int partition, long firstMove, long lastMove );
+    }
+
+    private final TraditionalHanoiIndex index;
+    private final int partitionCount;
+
+    /**
+     * @param index           The solution to generate
+     * @param partitionCount  Number of pieces to split the moves into.  Use several per core so the
+     *                           work stays balanced.
+     */
+    public ParallelHanoiGenerator( TraditionalHanoiIndex index, int partitionCount )
+    {
+        if ( partitionCount < 1 )
+            throw new IllegalArgumentException( "Partition count must be positive: " + partitionCount );
+
+        this.index = index;
+        this.partitionCount = partitionCount;
+    }
+
+    public int getPartitionCount()
+    {
+        return partitionCount;
+    }
+
+    /** @return The first move number of a partition.  Partitions differ in size by at most one move. */
+    public long getFirstMove( int partition )
+    {
+        long base = index.getMoveCount() / partitionCount;
+        long extra = index.getMoveCount() % partitionCount;
+
+        return 1 + partition * base + Math.min( partition, extra );
+    }
+
+    /** @return The last move number of a partition.  Less than the first move when the partition is empty. */
+    public long getLastMove( int partition )
+    {
+        return getFirstMove( partition + 1 ) - 1;
+    }
+
+    /** Generates all the partitions on the common pool */
+    public void generate( PartitionSinkFactory factory )
+    {
+        generate( ForkJoinPool.commonPool(), factory );
+    }
+
+    /** Generates all the partitions on the given pool and returns when they are all done */
+    public void generate( ForkJoinPool pool, PartitionSinkFactory factory )
+    {
+        pool.invoke( new PartitionTask( factory, 0, partitionCount ));
+    }
+
+    /**
+     * Writes each partition as text to its own file in a directory.   The files, in name order, concatenate
+     *   into the same text BufferedTextMoveSink writes for a single threaded solve.
+     *
+     * @param directory  Where the part files are created
+     * @return The part files in order
+     */
+    public List<Path> generateText( Path directory )
+    {
+        List<Path> parts = new ArrayList<Path>();
+
+        for ( int p = 0; p < partitionCount; p++ )
+            parts.add( directory.resolve( String.format( "part-%05d.txt", p ) ));
+
+        generate( ( partition, firstMove, lastMove ) -> {
+            try
+            {
+                OutputStream out = Files.newOutputStream( parts.get( partition ));
+
+                // The partition flushes once at the end, which is when the file can be closed.
+                return new BufferedTextMoveSink( out ) {
+                    @Override
+                    public void flush()
+                    {
+                        super.flush();
+                        try
+                        {
+                            out.close();
+                        }
+                        catch ( IOException e )
+                        {
+                            throw new UncheckedIOException( e );
+                        }
+                    }
+                };
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        } );
+
+        return parts;
+    }
+
+    /** Splits the partitions in half until there is one to generate */
+    private class PartitionTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final PartitionSinkFactory factory;
+        private final int firstPartition;
+        private final int endPartition;
+
+        PartitionTask( PartitionSinkFactory factory, int firstPartition, int endPartition )
+        {
+            this.factory = factory;
+            this.firstPartition = firstPartition;
+            this.endPartition = endPartition;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if ( endPartition - firstPartition > 1 )
+            {
+                int middle = ( firstPartition + endPartition ) >>> 1;
+
+                invokeAll( new PartitionTask( factory, firstPartition, middle ),
+                           new PartitionTask( factory, middle, endPartition ));
+            }
+            else
+            {
+                long firstMove = getFirstMove( firstPartition );
+                long lastMove = getLastMove( firstPartition );
+                MoveSink sink = factory.createSink( firstPartition, firstMove, lastMove );
+
+                index.generate( firstMove, lastMove, sink );
+                sink.flush();
+            }
+        }
+    }
+}
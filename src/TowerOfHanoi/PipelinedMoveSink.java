@@ -0,0 +1,252 @@
+package TowerOfHanoi;
+
+import java.io.Closeable;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * PipelinedMoveSink:  Hands the moves to another sink on a writer thread of its own, so the solve carries on
+ *    while the writes block.   Each move is packed into a long and put in a preallocated ring that only the
+ *    solving thread adds to and only the writer thread takes from.   The two sides share nothing but a
+ *    counter each, published with lazySet, so no locks are taken and nothing is allocated per move.   The
+ *    writer takes whatever has built up as one batch and frees the space after it.
+ *
+ *    A side that has to wait, the solve on a full ring or the writer on an empty one, either spins or
+ *    parks until the other side wakes it.   Spinning reacts fastest but keeps a core busy.
+ *
+ *    flush() waits until the writer has passed every move on and flushed the other sink, so checkpoints and
+ *    getOutputPosition() see all the moves.   Tower ids have to fit in 16 bits.
+ */
+public class PipelinedMoveSink implements MoveSink, Closeable
+{
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    // How a side waits for the other
+    public enum WaitStrategy
+    {
+        Blocking,                     // Parks the thread until it is woken
+        Spinning                      // Busy waits, for when a core can be given to each side
+    };
+
+    // Longest a parked side sleeps before looking again, in case a wake up was missed
+    private static final long PARK_NANOS = 100_000;
+
+    // Spins before a spinning side gives up its core for a moment, so the other side can run on one core
+    private static final int SPINS_PER_YIELD = 1 << 10;
+
+    private final MoveSink target;
+    private final long[] ring;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final Thread writer;
+
+    private final AtomicLong published = new AtomicLong();    // Moves put in the ring
+    private final AtomicLong consumed = new AtomicLong();     // Moves passed on to the target
+    private long cachedConsumed;                              // The solving thread's last look at consumed
+    private long nextMove;                                    // Only touched by the solving thread
+    private int producerSpins;
+
+    private volatile long flushRequested = -1;                // Move count the solve wants flushed through
+    private volatile long flushedThrough = -1;
+    private volatile boolean producerWaiting;
+    private volatile boolean writerWaiting;
+    private volatile boolean closed;
+    private volatile Throwable failure;
+    private volatile Thread producer;                         // The solving thread, once it has waited
+
+    public PipelinedMoveSink( MoveSink target )
+    {
+        this( target, DEFAULT_CAPACITY, WaitStrategy.Blocking );
+    }
+
+    /**
+     * @param target         Where the writer thread passes the moves
+     * @param capacity       Moves the ring holds, rounded up to a power of two
+     * @param waitStrategy   How each side waits for the other
+     */
+    public PipelinedMoveSink( MoveSink target, int capacity, WaitStrategy waitStrategy )
+    {
+        if ( capacity < 2 || capacity > ( 1 << 30 ))
+            throw new IllegalArgumentException( "Ring capacity out of range: " + capacity );
+
+        int size = Integer.highestOneBit( capacity - 1 ) << 1;
+
+        this.target = target;
+        this.ring = new long[size];
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+
+        writer = new Thread( this::drain, "hanoi-move-writer" );
+        writer.setDaemon( true );
+        writer.start();
+    }
+
+    public int getCapacity()
+    {
+        return ring.length;
+    }
+
+    /** Called by the solving thread.   Waits only when the ring is full. */
+    public void move( int diskId, int fromTowerId, int toTowerId )
+    {
+        if ( ( ( fromTowerId | toTowerId ) & ~0xFFFF ) != 0 )
+            throw new IllegalArgumentException( "Tower ids past 65535 can't be pipelined" );
+
+        long move = nextMove;
+
+        // Full when the writer is a whole ring behind
+        if ( move - cachedConsumed >= ring.length )
+        {
+            cachedConsumed = consumed.get();
+            while ( move - cachedConsumed >= ring.length )
+            {
+                waitForWriter();
+                cachedConsumed = consumed.get();
+            }
+        }
+
+        ring[(int)move & mask] = ( (long)diskId << 32 ) | ( (long)fromTowerId << 16 ) | toTowerId;
+        nextMove = move + 1;
+        published.lazySet( move + 1 );
+
+        if ( writerWaiting )
+            LockSupport.unpark( writer );
+    }
+
+    /** Waits until the writer has passed every move so far on and flushed the other sink */
+    public void flush()
+    {
+        long through = nextMove;
+
+        flushRequested = through;
+        LockSupport.unpark( writer );
+
+        while ( flushedThrough < through )
+            waitForWriter();
+    }
+
+    /** @return The other sink's position once flushed */
+    public long getOutputPosition()
+    {
+        return target.getOutputPosition();
+    }
+
+    /** Flushes the moves and stops the writer thread */
+    public void close()
+    {
+        try
+        {
+            if ( failure == null )
+                flush();
+        }
+        finally
+        {
+            closed = true;
+            LockSupport.unpark( writer );
+            try
+            {
+                writer.join();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** One wait of the solving thread on the writer.  Throws what the writer failed with. */
+    private void waitForWriter()
+    {
+        checkFailure();
+
+        if ( waitStrategy == WaitStrategy.Spinning )
+        {
+            spin( ++producerSpins );
+        }
+        else
+        {
+            producer = Thread.currentThread();
+            producerWaiting = true;
+            LockSupport.parkNanos( this, PARK_NANOS );
+            producerWaiting = false;
+        }
+
+        checkFailure();
+    }
+
+    /** One turn of a busy wait */
+    private static void spin( int spins )
+    {
+        if ( ( spins & ( SPINS_PER_YIELD - 1 )) == 0 )
+            Thread.yield();
+        else
+            Thread.onSpinWait();
+    }
+
+    private void checkFailure()
+    {
+        Throwable error = failure;
+
+        if ( error instanceof UncheckedIOException )
+            throw (UncheckedIOException)error;
+        if ( error != null )
+            throw new IllegalStateException( "The move writer failed", error );
+    }
+
+    /** The writer thread:  passes on whatever the ring holds, flushes when asked and waits for more. */
+    private void drain()
+    {
+        long next = 0;
+        int spins = 0;
+
+        try
+        {
+            while ( true )
+            {
+                long available = published.get();
+
+                if ( available > next )
+                {
+                    for ( long m = next; m < available; m++ )
+                    {
+                        long move = ring[(int)m & mask];
+                        target.move( (int)( move >>> 32 ), (int)( move >>> 16 ) & 0xFFFF, (int)move & 0xFFFF );
+                    }
+                    next = available;
+                    consumed.lazySet( next );
+
+                    if ( producerWaiting )
+                        LockSupport.unpark( producer );
+                }
+                else if ( flushRequested > flushedThrough && flushRequested <= next )
+                {
+                    long through = flushRequested;
+                    target.flush();
+                    flushedThrough = through;
+                    LockSupport.unpark( producer );
+                }
+                else if ( closed )
+                {
+                    return;
+                }
+                else if ( waitStrategy == WaitStrategy.Spinning )
+                {
+                    spin( ++spins );
+                }
+                else
+                {
+                    writerWaiting = true;
+                    if ( published.get() == next && !closed && flushRequested <= flushedThrough )
+                        LockSupport.parkNanos( this, PARK_NANOS );
+                    writerWaiting = false;
+                }
+            }
+        }
+        catch ( Throwable e )
+        {
+            failure = e;
+            LockSupport.unpark( producer );
+        }
+    }
+}
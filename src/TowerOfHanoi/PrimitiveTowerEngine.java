@@ -0,0 +1,149 @@
+package TowerOfHanoi;
+
+import java.util.Arrays;
+
+/**
+ * PrimitiveTowerEngine:  Keeps the towers as linked stacks in int arrays.   Each tower knows its top disk
+ *    and each disk knows the disk underneath it, so a move is a couple of array writes and nothing is
+ *    allocated or shifted.   The tower each disk is on is kept in a short array, so there can be up to
+ *    32767 towers.   Memory is O( towers + disks ).
+ */
+public class PrimitiveTowerEngine implements TowerEngine
+{
+    private final int towerCount;
+    private final int diskCount;
+
+    private final int[] topDisk;         // Disk on top of each tower, 0 when the tower is empty.
+    private final int[] towerHeight;     // Number of disks on each tower.
+    private final int[] diskBelow;       // Disk under each disk, 0 when it is on the bottom.
+    private final short[] diskTower;      // Tower each disk is on.
+
+    /** Builds the towers and stacks all the disks on tower 1 */
+    public PrimitiveTowerEngine( int towers, int discs )
+    {
+        if ( towers > Short.MAX_VALUE )
+            throw new IllegalArgumentException( "Too many towers for the primitive engine: " + towers );
+
+        this.towerCount = towers;
+        this.diskCount = discs;
+
+        topDisk = new int[towerCount + 1];
+        towerHeight = new int[towerCount + 1];
+        diskBelow = new int[diskCount + 1];
+        diskTower = new short[diskCount + 1];
+
+        // Stack the disks on tower 1 from the largest up
+        for ( int d = diskCount; d >= 1; d-- )
+        {
+            diskBelow[d] = topDisk[1];
+            diskTower[d] = 1;
+            topDisk[1] = d;
+        }
+        towerHeight[1] = diskCount;
+    }
+
+    /**
+     * Builds the towers with the disks already placed.   The disks on each tower are stacked by size.
+     *
+     * @param towers     Number of towers
+     * @param diskTower  The tower of each disk indexed by disk id.  Index 0 is unused.
+     */
+    public PrimitiveTowerEngine( int towers, int[] diskTower )
+    {
+        if ( towers > Short.MAX_VALUE )
+            throw new IllegalArgumentException( "Too many towers for the primitive engine: " + towers );
+
+        this.towerCount = towers;
+        this.diskCount = diskTower.length - 1;
+
+        topDisk = new int[towerCount + 1];
+        towerHeight = new int[towerCount + 1];
+        diskBelow = new int[diskCount + 1];
+        this.diskTower = new short[diskCount + 1];
+
+        setConfiguration( diskTower );
+    }
+
+    public int getTowerCount()
+    {
+        return towerCount;
+    }
+
+    public int getDiskCount()
+    {
+        return diskCount;
+    }
+
+    public int getDiskCount( int towerId )
+    {
+        return towerHeight[towerId];
+    }
+
+    public boolean isEmpty( int towerId )
+    {
+        return ( topDisk[towerId] == 0 );
+    }
+
+    public int getTopDisk( int towerId )
+    {
+        return topDisk[towerId];
+    }
+
+    public int getDiskAt( int towerId, int index )
+    {
+        int disk = topDisk[towerId];
+
+        for ( int i = 0; i < index; i++ )
+            disk = diskBelow[disk];
+
+        return disk;
+    }
+
+    public int getDiskTower( int diskId )
+    {
+        return diskTower[diskId];
+    }
+
+    public int moveDisk( int fromTowerId, int toTowerId )
+    {
+        int disk = topDisk[fromTowerId];
+
+        if ( disk == 0 )
+            return 0;
+
+        // Pop it off the from tower
+        topDisk[fromTowerId] = diskBelow[disk];
+        towerHeight[fromTowerId]--;
+
+        // Push it onto the to tower
+        diskBelow[disk] = topDisk[toTowerId];
+        topDisk[toTowerId] = disk;
+        towerHeight[toTowerId]++;
+        diskTower[disk] = (short)toTowerId;
+
+        return disk;
+    }
+
+    public void setConfiguration( int[] diskTower )
+    {
+        if ( diskTower.length != diskCount + 1 )
+            throw new IllegalArgumentException( "Need a tower for each of the " + diskCount + " disks" );
+
+        Arrays.fill( topDisk, 0 );
+        Arrays.fill( towerHeight, 0 );
+
+        // Stack the disks from the largest up so the smaller ones end up on top
+        for ( int d = diskCount; d >= 1; d-- )
+        {
+            int t = diskTower[d];
+
+            if ( t < 1 || t > towerCount )
+                throw new IllegalArgumentException( "Disk " + d + " is on a tower that does not exist: " + t );
+
+            diskBelow[d] = topDisk[t];
+            topDisk[t] = d;
+            towerHeight[t]++;
+            this.diskTower[d] = (short)t;
+        }
+    }
+}
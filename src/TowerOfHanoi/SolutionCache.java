@@ -0,0 +1,144 @@
+package TowerOfHanoi;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * SolutionCache:  Keeps recent solutions as CompactSolutions keyed by ( towers, disks, SolutionType ) so
+ *    a repeated solve can replay them instead of working them out again.   The least recently used
+ *    solutions are dropped when the cache holds more than its size in bytes.   Safe to share between
+ *    threads.
+ *
+ *    The 3 tower Hanoi phase is kept as a TradionalHanoi solution from tower 1 to tower 3 and is replayed
+ *    between whichever towers the phase uses.
+ */
+public class SolutionCache
+{
+    /** What a solution is kept under */
+    public static final class Key
+    {
+        private final int towers;
+        private final int disks;
+        private final Hanoi.SolutionType solutionType;
+
+        public Key( int towers, int disks, Hanoi.SolutionType solutionType )
+        {
+            this.towers = towers;
+            this.disks = disks;
+            this.solutionType = solutionType;
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( !( o instanceof Key ))
+                return false;
+
+            Key other = (Key)o;
+            return towers == other.towers && disks == other.disks && solutionType == other.solutionType;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash( towers, disks, solutionType );
+        }
+
+        @Override
+        public String toString()
+        {
+            return towers + "/" + disks + "/" + solutionType;
+        }
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, CompactSolution> solutions = new LinkedHashMap<Key, CompactSolution>( 16, 0.75f, true );
+    private long totalBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    /** @param maxBytes  Most memory the kept solutions may take */
+    public SolutionCache( long maxBytes )
+    {
+        this.maxBytes = maxBytes;
+    }
+
+    /** @return The most moves a solution can have and still fit */
+    public long getMaxMoves()
+    {
+        return maxBytes / 2;
+    }
+
+    /** @return The solution kept under the key, null when there is none */
+    public synchronized CompactSolution get( Key key )
+    {
+        CompactSolution solution = solutions.get( key );
+
+        if ( solution == null )
+            misses++;
+        else
+            hits++;
+
+        return solution;
+    }
+
+    /** Keeps a solution, dropping the least recently used ones to make room */
+    public synchronized void put( Key key, CompactSolution solution )
+    {
+        if ( solution == null || solution.getSizeInBytes() > maxBytes )
+            return;
+
+        CompactSolution old = solutions.put( key, solution );
+        if ( old != null )
+            totalBytes -= old.getSizeInBytes();
+        totalBytes += solution.getSizeInBytes();
+
+        Iterator<Map.Entry<Key, CompactSolution>> eldest = solutions.entrySet().iterator();
+        while ( totalBytes > maxBytes && eldest.hasNext() )
+        {
+            totalBytes -= eldest.next().getValue().getSizeInBytes();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Gets the 3 tower solution for a pile, building it from the index when it is not kept yet.
+     *
+     * @param disks  Disks in the pile
+     * @return The solution from tower 1 to tower 3, null when it is too big to keep
+     */
+    public CompactSolution getTraditionalHanoi( int disks )
+    {
+        Key key = new Key( 3, disks, Hanoi.SolutionType.TradionalHanoi );
+        CompactSolution solution = get( key );
+
+        if ( solution == null )
+        {
+            solution = CompactSolution.traditionalHanoi( disks, getMaxMoves() );
+            put( key, solution );
+        }
+        return solution;
+    }
+
+    public synchronized int size()
+    {
+        return solutions.size();
+    }
+
+    public synchronized long getTotalBytes()
+    {
+        return totalBytes;
+    }
+
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+}
@@ -0,0 +1,556 @@
+package TowerOfHanoi;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * SolutionGrammar:  A whole solution kept as a straight line program instead of a list of moves.   Each
+ *    rule is a short sequence of moves and calls to earlier rules, written in terms of tower parameters,
+ *    so one rule is reused for every pile of its size whichever towers it moves between.   A call passes
+ *    its towers on in a new order and shifts the disk ids by an offset.
+ *
+ *    The k disk Hanoi rule is the k - 1 disk rule from source to working, the move of disk k and the
+ *    k - 1 disk rule from working to destination, the same moves processTowerHanoi() makes.   The
+ *    Frame-Stewart rules follow processFrameStewart() the same way.   The buffer phases are kept as plain
+ *    moves in the last rule, which is the solution.   So a solution takes O( disks ) rules for 3 towers and
+ *    O( disks * towers ) with more, however many moves it has.
+ *
+ *    Moves are numbered from 1.   Any move can be looked up by walking down the rules by their move counts,
+ *    and any range of moves can be expanded into a MoveSink without expanding the rest.
+ *
+ *    The serialized form is:
+ *        int   magic "HGRM"
+ *        int   format version
+ *        int   tower count
+ *        int   disk count
+ *        int   rule count
+ *    then for each rule its parameter count and symbol count, and for each symbol the rule it calls,
+ *    -1 for a move, and the disk or disk offset, followed by the from and to parameters of a move or the
+ *    parameter passed to each parameter of the rule called.
+ */
+public final class SolutionGrammar
+{
+    public static final int MAGIC = 0x4847524D;
+    public static final int VERSION = 1;
+
+    private final int towerCount;
+    private final int diskCount;
+    private final Rule[] rules;
+    private final int maxDepth;
+    private final int maxArity;
+
+    private SolutionGrammar( int towerCount, int diskCount, Rule[] rules )
+    {
+        this.towerCount = towerCount;
+        this.diskCount = diskCount;
+        this.rules = rules;
+
+        int depth = 0;
+        int arity = 0;
+        for ( Rule rule : rules )
+        {
+            depth = Math.max( depth, rule.depth );
+            arity = Math.max( arity, rule.arity );
+        }
+        this.maxDepth = depth;
+        this.maxArity = arity;
+    }
+
+    public int getTowerCount()
+    {
+        return towerCount;
+    }
+
+    public int getDiskCount()
+    {
+        return diskCount;
+    }
+
+    public int getRuleCount()
+    {
+        return rules.length;
+    }
+
+    /** @return The moves and calls in all the rules */
+    public long getSymbolCount()
+    {
+        long symbols = 0;
+
+        for ( Rule rule : rules )
+            symbols += rule.size;
+
+        return symbols;
+    }
+
+    /** @return The moves in the solution.  Long.MAX_VALUE when there are too many to count. */
+    public long getMoveCount()
+    {
+        return start().moves;
+    }
+
+    /**
+     * Finds a move without expanding the moves before it.
+     *
+     * @param move  The move number from 1 to getMoveCount()
+     * @return  The move.
+     */
+    public HanoiMove getMove( long move )
+    {
+        if ( move < 1 || move > getMoveCount() )
+            throw new IndexOutOfBoundsException( "Move " + move + " of " + getMoveCount() );
+
+        Rule rule = start();
+        int[] towers = startTowers();
+        int offset = 0;
+
+        while ( true )
+        {
+            // The first symbol that ends at or after the move
+            int s = Arrays.binarySearch( rule.ends, 0, rule.size, move );
+            if ( s < 0 )
+                s = -s - 1;
+
+            long before = ( s == 0 ) ? 0 : rule.ends[s - 1];
+
+            if ( rule.callee[s] < 0 )
+                return new HanoiMove( rule.disk[s] + offset, towers[rule.from[s]], towers[rule.to[s]] );
+
+            int[] args = rule.args[s];
+            int[] called = new int[args.length];
+            for ( int p = 0; p < args.length; p++ )
+                called[p] = towers[args[p]];
+
+            towers = called;
+            offset += rule.disk[s];
+            move -= before;
+            rule = rules[rule.callee[s]];
+        }
+    }
+
+    /** Expands every move into the sink */
+    public void generate( MoveSink sink )
+    {
+        if ( getMoveCount() > 0 )
+            generate( 1, getMoveCount(), sink );
+    }
+
+    /**
+     * Expands a range of moves into the sink.   Rules wholly outside the range are skipped by their move
+     *    counts and nothing is allocated per move.
+     *
+     * @param firstMove   First move number, from 1
+     * @param lastMove    Last move number, included
+     * @param sink        Gets the moves in order
+     */
+    public void generate( long firstMove, long lastMove, MoveSink sink )
+    {
+        if ( firstMove < 1 || lastMove > getMoveCount() )
+            throw new IndexOutOfBoundsException( "Moves " + firstMove + " to " + lastMove + " of " + getMoveCount() );
+
+        if ( firstMove > lastMove )
+            return;
+
+        // A tower map for each level of calls
+        int[][] towers = new int[maxDepth + 1][maxArity];
+        System.arraycopy( startTowers(), 0, towers[0], 0, towerCount );
+
+        expand( start(), 0, 0, firstMove, lastMove, towers, sink );
+    }
+
+    /** Expands the moves of a rule from firstMove to lastMove, both counted from 1 within the rule */
+    private void expand( Rule rule, int level, int offset, long firstMove, long lastMove, int[][] towers, MoveSink sink )
+    {
+        int[] map = towers[level];
+
+        int s = Arrays.binarySearch( rule.ends, 0, rule.size, firstMove );
+        if ( s < 0 )
+            s = -s - 1;
+
+        for ( ; s < rule.size; s++ )
+        {
+            long before = ( s == 0 ) ? 0 : rule.ends[s - 1];
+            if ( before >= lastMove )
+                break;
+
+            if ( rule.callee[s] < 0 )
+            {
+                sink.move( rule.disk[s] + offset, map[rule.from[s]], map[rule.to[s]] );
+                continue;
+            }
+
+            int[] args = rule.args[s];
+            int[] called = towers[level + 1];
+            for ( int p = 0; p < args.length; p++ )
+                called[p] = map[args[p]];
+
+            expand( rules[rule.callee[s]], level + 1, offset + rule.disk[s],
+                    Math.max( firstMove - before, 1 ), Math.min( lastMove, rule.ends[s] ) - before, towers, sink );
+        }
+    }
+
+    /** @return The moves expanded as they are pulled from the stream.  It splits for parallel streams. */
+    public Stream<HanoiMove> stream()
+    {
+        return stream( 1, getMoveCount() );
+    }
+
+    /** @return The moves from firstMove to lastMove expanded as they are pulled from the stream */
+    public Stream<HanoiMove> stream( long firstMove, long lastMove )
+    {
+        return StreamSupport.stream( new MoveSpliterator( this, firstMove, lastMove ), false );
+    }
+
+    /** Writes the rules in the serialized form */
+    public void write( OutputStream stream ) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream( stream );
+
+        out.writeInt( MAGIC );
+        out.writeInt( VERSION );
+        out.writeInt( towerCount );
+        out.writeInt( diskCount );
+        out.writeInt( rules.length );
+
+        for ( Rule rule : rules )
+        {
+            out.writeInt( rule.arity );
+            out.writeInt( rule.size );
+
+            for ( int s = 0; s < rule.size; s++ )
+            {
+                out.writeInt( rule.callee[s] );
+                out.writeInt( rule.disk[s] );
+
+                if ( rule.callee[s] < 0 )
+                {
+                    out.writeInt( rule.from[s] );
+                    out.writeInt( rule.to[s] );
+                }
+                else
+                {
+                    for ( int arg : rule.args[s] )
+                        out.writeInt( arg );
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /** Reads rules written by write().  Rules can only call the rules before them. */
+    public static SolutionGrammar read( InputStream stream ) throws IOException
+    {
+        DataInputStream in = new DataInputStream( stream );
+
+        if ( in.readInt() != MAGIC )
+            throw new IOException( "Not a solution grammar" );
+        if ( in.readInt() != VERSION )
+            throw new IOException( "Unsupported solution grammar version" );
+
+        int towerCount = in.readInt();
+        int diskCount = in.readInt();
+        int ruleCount = in.readInt();
+
+        if ( towerCount < 1 || diskCount < 0 || ruleCount < 1 )
+            throw new IOException( "Damaged solution grammar" );
+
+        Rule[] rules = new Rule[ruleCount];
+        for ( int r = 0; r < ruleCount; r++ )
+        {
+            int arity = in.readInt();
+            int size = in.readInt();
+            if ( arity < 1 || size < 0 )
+                throw new IOException( "Damaged rule " + r );
+
+            Rule rule = new Rule( arity );
+            for ( int s = 0; s < size; s++ )
+            {
+                int callee = in.readInt();
+                int disk = in.readInt();
+
+                if ( callee < 0 )
+                {
+                    int from = in.readInt();
+                    int to = in.readInt();
+                    if ( from < 0 || from >= arity || to < 0 || to >= arity )
+                        throw new IOException( "Move past the towers of rule " + r );
+                    rule.addMove( disk, from, to );
+                }
+                else
+                {
+                    if ( callee >= r )
+                        throw new IOException( "Rule " + r + " calls a rule that isn't before it" );
+
+                    int[] args = new int[rules[callee].arity];
+                    for ( int p = 0; p < args.length; p++ )
+                    {
+                        args[p] = in.readInt();
+                        if ( args[p] < 0 || args[p] >= arity )
+                            throw new IOException( "Call past the towers of rule " + r );
+                    }
+                    rule.addCall( rules[callee], callee, disk, args );
+                }
+            }
+            rules[r] = rule;
+        }
+
+        if ( rules[ruleCount - 1].arity != towerCount )
+            throw new IOException( "The solution rule doesn't take every tower" );
+
+        return new SolutionGrammar( towerCount, diskCount, rules );
+    }
+
+    private Rule start()
+    {
+        return rules[rules.length - 1];
+    }
+
+    /** @return The towers the solution rule is called with, each tower as itself */
+    private int[] startTowers()
+    {
+        int[] towers = new int[towerCount];
+
+        for ( int t = 0; t < towerCount; t++ )
+            towers[t] = t + 1;
+
+        return towers;
+    }
+
+    /** One rule:  symbols that are either a move between two parameters or a call to an earlier rule */
+    private static final class Rule
+    {
+        final int arity;
+        int size = 0;
+        int[] callee = new int[4];       // Rule called, -1 for a move
+        int[] disk = new int[4];         // Disk moved or the disk offset of the call
+        int[] from = new int[4];
+        int[] to = new int[4];
+        int[][] args = new int[4][];     // Parameter passed to each parameter of the rule called
+        long[] ends = new long[4];       // Moves up to the end of each symbol
+        long moves = 0;
+        int depth = 0;                   // Most calls below this rule
+
+        Rule( int arity )
+        {
+            this.arity = arity;
+        }
+
+        void addMove( int diskId, int fromParameter, int toParameter )
+        {
+            grow();
+            callee[size] = -1;
+            disk[size] = diskId;
+            from[size] = fromParameter;
+            to[size] = toParameter;
+            moves = addMoves( moves, 1 );
+            ends[size++] = moves;
+        }
+
+        void addCall( Rule rule, int ruleId, int diskOffset, int[] parameters )
+        {
+            grow();
+            callee[size] = ruleId;
+            disk[size] = diskOffset;
+            args[size] = parameters;
+            moves = addMoves( moves, rule.moves );
+            ends[size++] = moves;
+            depth = Math.max( depth, rule.depth + 1 );
+        }
+
+        private void grow()
+        {
+            if ( size < callee.length )
+                return;
+
+            int length = size * 2;
+            callee = Arrays.copyOf( callee, length );
+            disk = Arrays.copyOf( disk, length );
+            from = Arrays.copyOf( from, length );
+            to = Arrays.copyOf( to, length );
+            args = Arrays.copyOf( args, length );
+            ends = Arrays.copyOf( ends, length );
+        }
+    }
+
+    /** Adds counts of moves, stopping at Long.MAX_VALUE */
+    private static long addMoves( long a, long b )
+    {
+        long sum = a + b;
+
+        return ( sum < 0 ) ? Long.MAX_VALUE : sum;
+    }
+
+    /**
+     * Builder:  Takes the plain moves of a solve as a MoveSink and its Hanoi and Frame-Stewart piles as
+     *    calls, making the rules for each pile size the first time it is used.
+     */
+    public static class Builder implements MoveSink
+    {
+        private final int towerCount;
+        private final int diskCount;
+        private final List<Rule> rules = new ArrayList<Rule>();
+        private final List<Integer> hanoiRules = new ArrayList<Integer>();
+        private final Map<Long, Integer> frameStewartRules = new HashMap<Long, Integer>();
+        private final Rule solution;
+
+        public Builder( int towerCount, int diskCount )
+        {
+            this.towerCount = towerCount;
+            this.diskCount = diskCount;
+            this.solution = new Rule( towerCount );
+
+            hanoiRules.add( -1 );          // No rule for 0 disks
+        }
+
+        /** A plain move of the solution */
+        public void move( int diskId, int fromTowerId, int toTowerId )
+        {
+            solution.addMove( diskId, fromTowerId - 1, toTowerId - 1 );
+        }
+
+        /**
+         * Adds the moves processTowerHanoi() makes for a pile.
+         *
+         * @param pileDiskCount   Disks in the pile
+         * @param diskOffset      The pile is disks diskOffset + 1 to diskOffset + pileDiskCount
+         * @return  The moves added.
+         */
+        public long hanoi( int pileDiskCount, int srcTower, int wrkTower, int dstTower, int diskOffset )
+        {
+            int ruleId = hanoiRule( pileDiskCount );
+            if ( ruleId < 0 )
+                return 0;
+
+            solution.addCall( rules.get( ruleId ), ruleId, diskOffset, new int[]{ srcTower - 1, wrkTower - 1, dstTower - 1 } );
+            return rules.get( ruleId ).moves;
+        }
+
+        /**
+         * Adds the moves processFrameStewart() makes for a pile.
+         *
+         * @param pileDiskCount   Disks in the pile, the top ones of the source tower
+         * @param spareTowers     The spare towers in the order processFrameStewart() gets them
+         * @param diskOffset      The pile is disks diskOffset + 1 to diskOffset + pileDiskCount
+         * @return  The moves added.
+         */
+        public long frameStewart( int pileDiskCount, int srcTower, int dstTower, int[] spareTowers, int spareCount,
+                                  int diskOffset )
+        {
+            int ruleId = frameStewartRule( pileDiskCount, spareCount );
+            if ( ruleId < 0 )
+                return 0;
+
+            int[] towers = new int[spareCount + 2];
+            towers[0] = srcTower - 1;
+            towers[1] = dstTower - 1;
+            for ( int s = 0; s < spareCount; s++ )
+                towers[s + 2] = spareTowers[s] - 1;
+
+            solution.addCall( rules.get( ruleId ), ruleId, diskOffset, towers );
+            return rules.get( ruleId ).moves;
+        }
+
+        public SolutionGrammar build()
+        {
+            Rule[] all = rules.toArray( new Rule[rules.size() + 1] );
+            all[rules.size()] = solution;
+
+            return new SolutionGrammar( towerCount, diskCount, all );
+        }
+
+        /** @return The rule with parameters source, working and destination for a pile, -1 for none */
+        private int hanoiRule( int pileDiskCount )
+        {
+            // Each size is built on the one below it
+            for ( int k = hanoiRules.size(); k <= pileDiskCount; k++ )
+            {
+                Rule rule = new Rule( 3 );
+
+                if ( k == 1 )
+                {
+                    rule.addMove( 1, 0, 2 );
+                }
+                else
+                {
+                    int smaller = hanoiRules.get( k - 1 );
+                    rule.addCall( rules.get( smaller ), smaller, 0, new int[]{ 0, 2, 1 } );
+                    rule.addMove( k, 0, 2 );
+                    rule.addCall( rules.get( smaller ), smaller, 0, new int[]{ 1, 0, 2 } );
+                }
+
+                hanoiRules.add( addRule( rule ));
+            }
+
+            return hanoiRules.get( pileDiskCount );
+        }
+
+        /** @return The rule with parameters source, destination and the spares for a pile, -1 for none */
+        private int frameStewartRule( int pileDiskCount, int spareCount )
+        {
+            if ( pileDiskCount == 0 )
+                return -1;
+
+            Long key = ( (long)pileDiskCount << 32 ) | spareCount;
+            Integer known = frameStewartRules.get( key );
+            if ( known != null )
+                return known;
+
+            Rule rule = new Rule( spareCount + 2 );
+
+            if ( pileDiskCount == 1 || spareCount == 0 )
+            {
+                rule.addMove( 1, 0, 1 );
+            }
+            else
+            {
+                int split = FrameStewartPlanner.getSplit( pileDiskCount, spareCount + 2 );
+                int hold = spareCount + 1;
+
+                // To the hold tower with the destination as the last spare, the rest without the hold
+                //   tower, then from the hold tower with the source as the last spare
+                int[] toHold = new int[spareCount + 2];
+                int[] rest = new int[spareCount + 1];
+                int[] fromHold = new int[spareCount + 2];
+                for ( int p = 0; p < spareCount + 1; p++ )
+                {
+                    toHold[p] = p;
+                    rest[p] = p;
+                    fromHold[p] = p;
+                }
+                toHold[1] = hold;
+                toHold[hold] = 1;
+                fromHold[0] = hold;
+                fromHold[hold] = 0;
+
+                int topRule = frameStewartRule( split, spareCount );
+                int bottomRule = frameStewartRule( pileDiskCount - split, spareCount - 1 );
+
+                if ( topRule >= 0 )
+                    rule.addCall( rules.get( topRule ), topRule, 0, toHold );
+                if ( bottomRule >= 0 )
+                    rule.addCall( rules.get( bottomRule ), bottomRule, split, rest );
+                if ( topRule >= 0 )
+                    rule.addCall( rules.get( topRule ), topRule, 0, fromHold );
+            }
+
+            int ruleId = addRule( rule );
+            frameStewartRules.put( key, ruleId );
+            return ruleId;
+        }
+
+        private int addRule( Rule rule )
+        {
+            rules.add( rule );
+            return rules.size() - 1;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package TowerOfHanoi;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * SolutionServer:  A small HTTP server that solves an instance for each request and streams the moves back
+ *    as they are made.   It is built on the JDK's com.sun.net.httpserver and answers
+ *
+ *        GET /solve?towers=T&disks=D[&format=text|binary][&solution=FrameStewart]
+ *
+ *    The response is sent with chunked transfer encoding while Hanoi.solve() runs on the primitive engine.
+ *    Text is the lines the console prints.   Binary is a binary move log ( see MoveLogFormat ) without
+ *    checkpoints, so it can be saved and read with a MoveLogReader.   X-Hanoi-Moves and X-Hanoi-Solution
+ *    give the move count and solution up front.   Requests for more moves than the server's limit are
+ *    turned away, since one of them would keep a thread busy for as long as the client cares to read.
+ *
+ *    Moves are written to the connection from a buffer of a fixed size and each write blocks until the
+ *    connection takes it, so a client that reads slowly holds the solve back rather than have the moves
+ *    pile up in memory.   A client that goes away ends its solve.   Each request runs on its own virtual
+ *    thread, or on a pool of platform threads before Java 21.
+ */
+public class SolutionServer
+{
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_MAX_TOWERS = 256;
+    public static final int DEFAULT_MAX_DISKS = 1024;
+    public static final long DEFAULT_MAX_MOVES = 1L << 32;
+
+    // Bytes of moves buffered for a request before they are written to its connection
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final int maxTowers;
+    private final int maxDisks;
+    private final long maxMoves;
+
+    /**
+     * @param address          Where to listen
+     * @param maxTowers        Most towers a request can ask for
+     * @param maxDisks         Most disks a request can ask for
+     * @param maxMoves         Most moves a request's solution can make
+     * @param fallbackThreads  Requests served at once when there are no virtual threads
+     */
+    public SolutionServer( InetSocketAddress address, int maxTowers, int maxDisks, long maxMoves,
+                           int fallbackThreads ) throws IOException
+    {
+        this.maxTowers = maxTowers;
+        this.maxDisks = maxDisks;
+        this.maxMoves = maxMoves;
+
+        server = HttpServer.create( address, 0 );
+        server.createContext( "/solve", this::handleSolve );
+        executor = VirtualThreads.newThreadPerTaskExecutor( fallbackThreads );
+        server.setExecutor( executor );
+    }
+
+    public void start()
+    {
+        server.start();
+    }
+
+    /**
+     * Stops taking requests and stops the server.
+     *
+     * @param delaySeconds  Most time given to the requests being served to finish
+     */
+    public void stop( int delaySeconds )
+    {
+        server.stop( delaySeconds );
+        executor.shutdownNow();
+    }
+
+    /** @return The port listened on, the one picked when the server was given port 0 */
+    public int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Runs the server from the command line until the process is stopped:
+     *     --serve [PORT] [--bind ADDRESS] [--max-towers T] [--max-disks D] [--max-moves M] [--threads N]
+     *
+     * The server listens on the loopback address unless another one is given.   --threads sets how many
+     * requests are served at once when there are no virtual threads.
+     *
+     * @return The exit code, only returned when the server can't start
+     */
+    public static int run( String[] args )
+    {
+        int port = DEFAULT_PORT;
+        String bindAddress = null;
+        int maxTowers = DEFAULT_MAX_TOWERS;
+        int maxDisks = DEFAULT_MAX_DISKS;
+        long maxMoves = DEFAULT_MAX_MOVES;
+        int threads = 4 * Runtime.getRuntime().availableProcessors();
+
+        try
+        {
+            int i = 1;
+            if ( i < args.length && !args[i].startsWith( "--" ))
+                port = Integer.parseInt( args[i++] );
+
+            for ( ; i < args.length; i++ )
+            {
+                if ( args[i].equals( "--bind" ))
+                    bindAddress = args[++i];
+                else if ( args[i].equals( "--max-towers" ))
+                    maxTowers = Integer.parseInt( args[++i] );
+                else if ( args[i].equals( "--max-disks" ))
+                    maxDisks = Integer.parseInt( args[++i] );
+                else if ( args[i].equals( "--max-moves" ))
+                    maxMoves = Long.parseLong( args[++i] );
+                else if ( args[i].equals( "--threads" ))
+                    threads = Integer.parseInt( args[++i] );
+                else
+                    throw new IllegalArgumentException( "Unknown option " + args[i] );
+            }
+
+            if ( maxTowers < 3 || maxDisks < 1 || maxMoves < 1 || threads < 1 )
+                throw new IllegalArgumentException( "Need 3 or more towers, a disk, a move and a thread" );
+        }
+        catch ( Exception e )
+        {
+            System.err.println( "Bad serve arguments: " + e.getMessage() );
+            System.err.println( "Usage: --serve [PORT] [--bind ADDRESS] [--max-towers T] [--max-disks D] [--max-moves M]"
+                                + " [--threads N]" );
+            return 2;
+        }
+
+        SolutionServer solutionServer;
+        try
+        {
+            InetAddress address = ( bindAddress == null ) ? InetAddress.getLoopbackAddress()
+                                                          : InetAddress.getByName( bindAddress );
+            solutionServer = new SolutionServer( new InetSocketAddress( address, port ), maxTowers, maxDisks, maxMoves,
+                                                  threads );
+        }
+        catch ( IOException e )
+        {
+            System.err.println( "Failed to start the server: " + e.getMessage() );
+            return 1;
+        }
+
+        solutionServer.start();
+        System.out.println( "Serving solutions on port " + solutionServer.getPort() );
+
+        CountDownLatch stopped = new CountDownLatch( 1 );
+        Runtime.getRuntime().addShutdownHook( new Thread( () -> {
+            solutionServer.stop( 1 );
+            stopped.countDown();
+        } ));
+
+        try
+        {
+            stopped.await();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    /** Serves one /solve request */
+    private void handleSolve( HttpExchange exchange ) throws IOException
+    {
+        boolean aborted = false;
+
+        try
+        {
+            if ( !exchange.getRequestMethod().equals( "GET" ))
+            {
+                exchange.getResponseHeaders().set( "Allow", "GET" );
+                sendError( exchange, 405, "Only GET is supported" );
+                return;
+            }
+
+            int towerCount;
+            int diskCount;
+            boolean binary;
+            boolean frameStewart;
+            try
+            {
+                Map<String, String> query = parseQuery( exchange.getRequestURI().getRawQuery() );
+
+                towerCount = Integer.parseInt( required( query, "towers" ));
+                diskCount = Integer.parseInt( required( query, "disks" ));
+
+                String format = query.getOrDefault( "format", "text" );
+                if ( !format.equals( "text" ) && !format.equals( "binary" ))
+                    throw new IllegalArgumentException( "Unknown format " + format );
+                binary = format.equals( "binary" );
+
+                String solution = query.getOrDefault( "solution", "Default" );
+                if ( !solution.equals( "Default" ) && !solution.equals( "FrameStewart" ))
+                    throw new IllegalArgumentException( "Unknown solution " + solution );
+                frameStewart = solution.equals( "FrameStewart" );
+
+                if ( towerCount < 3 || towerCount > maxTowers || diskCount < 1 || diskCount > maxDisks )
+                    throw new IllegalArgumentException( "Towers must be 3 to " + maxTowers
+                                                        + " and disks 1 to " + maxDisks );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                sendError( exchange, 400, e.getMessage() );
+                return;
+            }
+
+            Hanoi hanoi = new Hanoi( towerCount, diskCount, Hanoi.EngineType.Primitive );
+            if ( frameStewart )
+                hanoi.setSolutionMethod( Hanoi.SolutionType.FrameStewart );
+
+            MovePrediction prediction = MovePredictor.predict( towerCount, diskCount, hanoi.getSolutionMethod() );
+            if ( prediction.getExactTotalMoves().compareTo( BigInteger.valueOf( maxMoves )) > 0 )
+            {
+                sendError( exchange, 400, "The solution takes more than the limit of " + maxMoves + " moves" );
+                return;
+            }
+
+            exchange.getResponseHeaders().set( "Content-Type", binary ? "application/octet-stream"
+                                                                      : "text/plain; charset=US-ASCII" );
+            exchange.getResponseHeaders().set( "X-Hanoi-Moves", prediction.getExactTotalMoves().toString() );
+            exchange.getResponseHeaders().set( "X-Hanoi-Solution", hanoi.getSolutionMethod().toString() );
+            exchange.sendResponseHeaders( 200, 0 );
+
+            ClientStream body = new ClientStream( exchange.getResponseBody() );
+            boolean solved;
+            if ( binary )
+            {
+                ByteBuffer header = MoveLogFormat.writeHeader( towerCount, diskCount, hanoi.getSolutionMethod(),
+                                                               prediction.getTotalMoves() );
+                body.write( header.array(), 0, header.limit() );
+
+                PackedMoveSink sink = new PackedMoveSink( body, towerCount, WRITE_BUFFER_SIZE );
+                hanoi.setMoveSink( sink );
+                solved = hanoi.solve();
+                if ( solved )
+                    sink.finish();
+            }
+            else
+            {
+                hanoi.setMoveSink( new BufferedTextMoveSink( body, WRITE_BUFFER_SIZE ));
+                solved = hanoi.solve();
+            }
+
+            // solve() fails when the sink can't write, which is just the client hanging up
+            if ( !solved && body.isFailed() )
+                return;
+
+            // Leave the last chunk unsent and let the server drop the connection, so the client sees the
+            // response cut short rather than a shorter solution that looks complete
+            if ( !solved )
+            {
+                aborted = true;
+                throw new IOException( "The solve of " + towerCount + " towers and " + diskCount + " disks failed" );
+            }
+            body.close();
+        }
+        catch ( UncheckedIOException e )
+        {
+            // The client went away while the last moves were written, nothing more can be sent
+        }
+        finally
+        {
+            if ( !aborted )
+                exchange.close();
+        }
+    }
+
+    /** The response body, remembering whether a write to the client has failed */
+    private static class ClientStream extends FilterOutputStream
+    {
+        private boolean failed = false;
+
+        ClientStream( OutputStream out )
+        {
+            super( out );
+        }
+
+        boolean isFailed()
+        {
+            return failed;
+        }
+
+        @Override
+        public void write( byte[] bytes, int offset, int length ) throws IOException
+        {
+            try
+            {
+                out.write( bytes, offset, length );
+            }
+            catch ( IOException e )
+            {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void write( int b ) throws IOException
+        {
+            write( new byte[]{ (byte)b }, 0, 1 );
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            try
+            {
+                out.flush();
+            }
+            catch ( IOException e )
+            {
+                failed = true;
+                throw e;
+            }
+        }
+    }
+
+    private static void sendError( HttpExchange exchange, int status, String message ) throws IOException
+    {
+        byte[] text = ( message + "\n" ).getBytes( StandardCharsets.US_ASCII );
+
+        exchange.getResponseHeaders().set( "Content-Type", "text/plain; charset=US-ASCII" );
+        if ( exchange.getRequestMethod().equals( "HEAD" ))
+        {
+            exchange.sendResponseHeaders( status, -1 );
+            return;
+        }
+
+        exchange.sendResponseHeaders( status, text.length );
+        try ( OutputStream body = exchange.getResponseBody() )
+        {
+            body.write( text );
+        }
+    }
+
+    private static String required( Map<String, String> query, String name )
+    {
+        String value = query.get( name );
+
+        if ( value == null )
+            throw new IllegalArgumentException( "Missing " + name );
+        return value;
+    }
+
+    private static Map<String, String> parseQuery( String rawQuery )
+    {
+        Map<String, String> query = new HashMap<String, String>();
+
+        if ( rawQuery == null || rawQuery.isEmpty() )
+            return query;
+
+        for ( String pair : rawQuery.split( "&" ))
+        {
+            int equals = pair.indexOf( '=' );
+            String name = ( equals < 0 ) ? pair : pair.substring( 0, equals );
+            String value = ( equals < 0 ) ? "" : pair.substring( equals + 1 );
+
+            query.put( URLDecoder.decode( name, StandardCharsets.UTF_8 ), URLDecoder.decode( value, StandardCharsets.UTF_8 ));
+        }
+        return query;
+    }
+}
@@ -0,0 +1,206 @@
+package TowerOfHanoi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * SolveCheckpoint:  Where a solve had got to, so a stopped solve can be picked up again.   It holds the
+ *    phase that was running, how far into the phase the solve was, the moves made so far and the tower of
+ *    every disk.   A file is laid out as:
+ *        int   magic "HNCP"
+ *        int   format version
+ *        int   tower count
+ *        int   disk count
+ *        int   SolutionType ordinal
+ *        int   Phase ordinal, -1 once the solve is complete
+ *        int   disks in the Hanoi pile being moved
+ *        long  Hanoi iterations done
+ *        long  moves made
+ *        long  bytes of output written, -1 when the move sink does not know
+ *    followed by the tower of each disk as an unsigned short, in the little endian order of the move log.
+ *
+ *    A phase that was stopped part way through is picked up again at the iteration of the Hanoi pile.
+ *    Every other phase is picked up from its start.
+ */
+public final class SolveCheckpoint
+{
+    public static final int MAGIC = 0x484E4350;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 52;
+
+    private final int towerCount;
+    private final Hanoi.SolutionType solutionType;
+    private final SolveMetrics.Phase phase;
+    private final int hanoiDiskCount;
+    private final long iteration;
+    private final long moveCount;
+    private final long outputPosition;
+    private final int[] diskTower;
+
+    /**
+     * @param towerCount       Number of towers
+     * @param solutionType     How the solve is moving the disks
+     * @param phase            The phase to pick up at, null when the solve is complete
+     * @param hanoiDiskCount   Disks in the Hanoi pile when part way through its phase
+     * @param iteration        Hanoi iterations done, 0 at the start of a phase
+     * @param moveCount        Moves made up to here
+     * @param outputPosition   Bytes of output written up to here, -1 when not known
+     * @param diskTower        The tower of each disk indexed by disk id.  Index 0 is unused.
+     */
+    public SolveCheckpoint( int towerCount, Hanoi.SolutionType solutionType, SolveMetrics.Phase phase,
+                            int hanoiDiskCount, long iteration, long moveCount, long outputPosition,
+                            int[] diskTower )
+    {
+        if ( towerCount > 0xFFFF )
+            throw new IllegalArgumentException( "Too many towers to checkpoint: " + towerCount );
+
+        this.towerCount = towerCount;
+        this.solutionType = solutionType;
+        this.phase = phase;
+        this.hanoiDiskCount = hanoiDiskCount;
+        this.iteration = iteration;
+        this.moveCount = moveCount;
+        this.outputPosition = outputPosition;
+        this.diskTower = diskTower;
+    }
+
+    public int getTowerCount()
+    {
+        return towerCount;
+    }
+
+    public int getDiskCount()
+    {
+        return diskTower.length - 1;
+    }
+
+    public Hanoi.SolutionType getSolutionType()
+    {
+        return solutionType;
+    }
+
+    /** @return The phase to pick up at, null when the solve is complete */
+    public SolveMetrics.Phase getPhase()
+    {
+        return phase;
+    }
+
+    public boolean isComplete()
+    {
+        return ( phase == null );
+    }
+
+    public int getHanoiDiskCount()
+    {
+        return hanoiDiskCount;
+    }
+
+    public long getIteration()
+    {
+        return iteration;
+    }
+
+    public long getMoveCount()
+    {
+        return moveCount;
+    }
+
+    public long getOutputPosition()
+    {
+        return outputPosition;
+    }
+
+    /** @return The tower of each disk indexed by disk id.  Index 0 is unused. */
+    public int[] getDiskTowers()
+    {
+        return diskTower.clone();
+    }
+
+    /**
+     * Writes the checkpoint to a file next to the one given and moves it into place, so the file always holds
+     *    either the last checkpoint or this one in full.
+     *
+     * @param file   Where the checkpoint is kept
+     */
+    public void write( Path file ) throws IOException
+    {
+        int diskCount = getDiskCount();
+        ByteBuffer data = ByteBuffer.allocate( HEADER_SIZE + 2 * diskCount ).order( MoveLogFormat.BYTE_ORDER );
+
+        data.putInt( MAGIC );
+        data.putInt( VERSION );
+        data.putInt( towerCount );
+        data.putInt( diskCount );
+        data.putInt( solutionType.ordinal() );
+        data.putInt( phase == null ? -1 : phase.ordinal() );
+        data.putInt( hanoiDiskCount );
+        data.putLong( iteration );
+        data.putLong( moveCount );
+        data.putLong( outputPosition );
+        for ( int d = 1; d <= diskCount; d++ )
+            data.putShort( (short)diskTower[d] );
+        data.flip();
+
+        Path temp = file.resolveSibling( file.getFileName() + ".tmp" );
+        try ( FileChannel channel = FileChannel.open( temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                      StandardOpenOption.TRUNCATE_EXISTING ))
+        {
+            while ( data.hasRemaining() )
+                channel.write( data );
+            channel.force( true );
+        }
+
+        try
+        {
+            Files.move( temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+        }
+        catch ( AtomicMoveNotSupportedException e )
+        {
+            Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING );
+        }
+    }
+
+    /**
+     * Reads a checkpoint written by write().
+     *
+     * @param file   Where the checkpoint is kept
+     * @return  The checkpoint
+     */
+    public static SolveCheckpoint read( Path file ) throws IOException
+    {
+        ByteBuffer data = ByteBuffer.wrap( Files.readAllBytes( file )).order( MoveLogFormat.BYTE_ORDER );
+
+        if ( data.remaining() < HEADER_SIZE || data.getInt() != MAGIC )
+            throw new IOException( "Not a solve checkpoint: " + file );
+        if ( data.getInt() != VERSION )
+            throw new IOException( "Unsupported checkpoint version in " + file );
+
+        int towerCount = data.getInt();
+        int diskCount = data.getInt();
+        int solution = data.getInt();
+        int phase = data.getInt();
+        int hanoiDiskCount = data.getInt();
+        long iteration = data.getLong();
+        long moveCount = data.getLong();
+        long outputPosition = data.getLong();
+
+        if ( diskCount < 0 || data.remaining() != 2L * diskCount
+             || solution < 0 || solution >= Hanoi.SolutionType.values().length
+             || phase < -1 || phase >= SolveMetrics.Phase.values().length )
+            throw new IOException( "Damaged checkpoint: " + file );
+
+        int[] diskTower = new int[diskCount + 1];
+        for ( int d = 1; d <= diskCount; d++ )
+            diskTower[d] = data.getShort() & 0xFFFF;
+
+        return new SolveCheckpoint( towerCount, Hanoi.SolutionType.values()[solution],
+                                    phase < 0 ? null : SolveMetrics.Phase.values()[phase],
+                                    hanoiDiskCount, iteration, moveCount, outputPosition, diskTower );
+    }
+}
@@ -0,0 +1,276 @@
+package TowerOfHanoi;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import jdk.jfr.EventType;
+
+/**
+ * SolveMetrics:  Counts and times the moves Hanoi.solve() makes in each phase.   The solver only bumps a
+ *    plain counter per move, everything else is done once per block of moves:  the shared counters are
+ *    updated, the rate is worked out and a MoveBlockEvent is recorded if JFR has it turned on.   Each phase
+ *    is recorded as a SolvePhaseEvent.  The numbers can be read from any thread and through JMX once the
+ *    metrics are registered.
+ */
+public class SolveMetrics implements SolveMetricsMBean
+{
+    // The parts of a solve the moves are counted in
+    public enum Phase
+    {
+        ShiftAndStack,                // Spreading out and stacking up when there are more towers than disks.
+        BufferDisks,                  // Making the buffer piles.
+        TowerHanoi,                   // Traditional Hanoi on three towers.
+        BufferedDisks,                // Moving the buffer piles to the destination.
+        FrameStewart                  // Frame-Stewart splitting of the pile.
+    };
+
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+    private static final Phase[] PHASES = Phase.values();
+
+    // Looked at before making a MoveBlockEvent, so no event is allocated while JFR has it turned off
+    private static final EventType MOVE_BLOCK_EVENT = EventType.getEventType( MoveBlockEvent.class );
+
+    private final int blockSize;
+
+    // Only touched by the solving thread
+    private int blockMoves = 0;
+    private long blockStartNanos;
+    private long phaseStartNanos;
+    private SolvePhaseEvent phaseEvent;
+
+    // Read by anyone
+    private volatile Phase phase = null;
+    private volatile boolean running = false;
+    private volatile long moveCount = 0;
+    private volatile long expectedMoves = -1;
+    private volatile long startMoveCount = 0;
+    private volatile long startNanos;
+    private volatile double movesPerSecond = 0;
+    private final AtomicLongArray phaseMoves = new AtomicLongArray( PHASES.length );
+    private final AtomicLongArray phaseNanos = new AtomicLongArray( PHASES.length );
+
+    private ObjectName objectName;
+
+    public SolveMetrics()
+    {
+        this( DEFAULT_BLOCK_SIZE );
+    }
+
+    /** @param blockSize  Moves between updates of the shared numbers */
+    public SolveMetrics( int blockSize )
+    {
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server.
+     *
+     * @param name  Tells instances apart, for example the towers and disks
+     * @return  The name registered under
+     */
+    public ObjectName register( String name ) throws JMException
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        objectName = new ObjectName( "TowerOfHanoi:type=SolveMetrics,name=" + ObjectName.quote( name ));
+        server.registerMBean( this, objectName );
+
+        return objectName;
+    }
+
+    public void unregister() throws JMException
+    {
+        if ( objectName != null )
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean( objectName );
+        objectName = null;
+    }
+
+    /** Starts over for a new solve
+     *
+     * @param expectedMoves   Moves the solve will make, 0 or less when not known
+     * @param movesMade       Moves already made, by the solve a checkpoint was taken from when resuming
+     */
+    void solveStarted( long expectedMoves, long movesMade )
+    {
+        for ( int p = 0; p < PHASES.length; p++ )
+        {
+            phaseMoves.set( p, 0 );
+            phaseNanos.set( p, 0 );
+        }
+        this.expectedMoves = expectedMoves;
+        startMoveCount = movesMade;
+        moveCount = movesMade;
+        movesPerSecond = 0;
+        blockMoves = 0;
+        startNanos = blockStartNanos = System.nanoTime();
+        running = true;
+    }
+
+    void solveFinished()
+    {
+        if ( phase != null )
+            endPhase();
+
+        publishBlock();
+        running = false;
+    }
+
+    void startPhase( Phase newPhase )
+    {
+        if ( phase != null )
+            endPhase();
+
+        publishBlock();
+        phase = newPhase;
+        phaseStartNanos = System.nanoTime();
+
+        phaseEvent = new SolvePhaseEvent();
+        phaseEvent.begin();
+    }
+
+    void endPhase()
+    {
+        publishBlock();
+
+        Phase endedPhase = phase;
+        phaseNanos.addAndGet( endedPhase.ordinal(), System.nanoTime() - phaseStartNanos );
+        phase = null;
+
+        if ( phaseEvent.shouldCommit() )
+        {
+            phaseEvent.phase = endedPhase.name();
+            phaseEvent.moves = phaseMoves.get( endedPhase.ordinal() );
+            phaseEvent.commit();
+        }
+        phaseEvent = null;
+    }
+
+    /** Called for every move.  Only counts until a block is full. */
+    void moveMade()
+    {
+        if ( ++blockMoves >= blockSize )
+            publishBlock();
+    }
+
+    /** Shares the moves of the block */
+    private void publishBlock()
+    {
+        if ( blockMoves == 0 )
+            return;
+
+        long now = System.nanoTime();
+        Phase currentPhase = phase;
+
+        if ( currentPhase != null )
+            phaseMoves.addAndGet( currentPhase.ordinal(), blockMoves );
+        moveCount = moveCount + blockMoves;
+
+        if ( now > blockStartNanos )
+            movesPerSecond = blockMoves * 1e9 / ( now - blockStartNanos );
+
+        if ( MOVE_BLOCK_EVENT.isEnabled() )
+        {
+            MoveBlockEvent event = new MoveBlockEvent();
+            if ( event.shouldCommit() )
+            {
+                event.phase = ( currentPhase == null ) ? "" : currentPhase.name();
+                event.moves = blockMoves;
+                event.totalMoves = moveCount;
+                event.progress = getProgress();
+                event.commit();
+            }
+        }
+
+        blockMoves = 0;
+        blockStartNanos = now;
+    }
+
+    public boolean isRunning()
+    {
+        return running;
+    }
+
+    public String getPhase()
+    {
+        Phase currentPhase = phase;
+        return ( currentPhase == null ) ? "" : currentPhase.name();
+    }
+
+    public long getMoveCount()
+    {
+        return moveCount;
+    }
+
+    public long getExpectedMoves()
+    {
+        return expectedMoves;
+    }
+
+    public double getMovesPerSecond()
+    {
+        return movesPerSecond;
+    }
+
+    public double getProgress()
+    {
+        long expected = expectedMoves;
+
+        if ( expected <= 0 )
+            return Double.NaN;
+
+        return (double)moveCount / expected;
+    }
+
+    public long getEtaSeconds()
+    {
+        long expected = expectedMoves;
+        long moves = moveCount;
+        long movesSinceStart = moves - startMoveCount;     // A resumed solve only has a rate for its own moves
+        long elapsed = System.nanoTime() - startNanos;
+
+        if ( expected <= 0 || movesSinceStart <= 0 || elapsed <= 0 )
+            return -1;
+
+        return (long)( ( expected - moves ) * ( elapsed / 1e9 ) / movesSinceStart );
+    }
+
+    public String[] getPhaseNames()
+    {
+        String[] names = new String[PHASES.length];
+
+        for ( int p = 0; p < PHASES.length; p++ )
+            names[p] = PHASES[p].name();
+
+        return names;
+    }
+
+    public long[] getPhaseMoves()
+    {
+        long[] moves = new long[PHASES.length];
+
+        for ( int p = 0; p < PHASES.length; p++ )
+            moves[p] = phaseMoves.get( p );
+
+        return moves;
+    }
+
+    public long[] getPhaseMillis()
+    {
+        long[] millis = new long[PHASES.length];
+
+        for ( int p = 0; p < PHASES.length; p++ )
+            millis[p] = phaseNanos.get( p ) / 1000000;
+
+        return millis;
+    }
+
+    /** @return Moves made in one phase */
+    public long getPhaseMoves( Phase p )
+    {
+        return phaseMoves.get( p.ordinal() );
+    }
+}
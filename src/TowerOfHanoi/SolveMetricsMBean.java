@@ -0,0 +1,37 @@
+package TowerOfHanoi;
+
+/**
+ * SolveMetricsMBean:  What SolveMetrics shows through JMX.
+ */
+public interface SolveMetricsMBean
+{
+    /** @return True while a solve is running */
+    boolean isRunning();
+
+    /** @return The phase being worked on, empty when none is */
+    String getPhase();
+
+    /** @return Moves made so far, counting those made before a resume, updated once per block of moves */
+    long getMoveCount();
+
+    /** @return Moves the solve will make in total, 0 or less when not known */
+    long getExpectedMoves();
+
+    /** @return Moves per second over the last block of moves */
+    double getMovesPerSecond();
+
+    /** @return Fraction of the expected moves made, NaN when the total is not known */
+    double getProgress();
+
+    /** @return Seconds left at the average rate so far, -1 when it can't be worked out */
+    long getEtaSeconds();
+
+    /** @return The names of the phases in the order of the phase arrays */
+    String[] getPhaseNames();
+
+    /** @return Moves made in each phase */
+    long[] getPhaseMoves();
+
+    /** @return Milliseconds spent in each phase */
+    long[] getPhaseMillis();
+}
@@ -0,0 +1,24 @@
+package TowerOfHanoi;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * SolvePhaseEvent:  JFR event covering one phase of Hanoi.solve().
+ */
+@Name( "TowerOfHanoi.SolvePhase" )
+@Label( "Solve Phase" )
+@Category( "Tower of Hanoi" )
+@Description( "One phase of Hanoi.solve() and the moves made in it" )
+@StackTrace( false )
+final class SolvePhaseEvent extends jdk.jfr.Event
+{
+    @Label( "Phase" )
+    String phase;
+
+    @Label( "Moves" )
+    long moves;
+}
@@ -0,0 +1,313 @@
+package TowerOfHanoi;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import javax.management.JMException;
+
+/**
+ * StreamingSolver:  Solves one instance of any size and streams the moves out as they are made.   It runs
+ *    on the primitive engine, so memory stays O( towers + disks ) and the move sequence is never held.
+ *    There are no limits on the towers and disks beyond what the engine holds and how long the moves take
+ *    to write.   The moves can also be animated on an ANSI terminal instead of listed.   A long solve can keep
+ *    a checkpoint and be resumed from it after it is stopped.
+ */
+public class StreamingSolver
+{
+    // Move codes filled in at a time for a 3 tower log
+    private static final int CODE_BUFFER_SIZE = 1 << 16;
+
+    private StreamingSolver()
+    {
+    }
+
+    /**
+     * Runs a streaming solve from the command line:
+     *     --stream TOWERS DISKS [--out FILE] [--log FILE] [--animate FPS] [--frame-stewart]
+     *              [--checkpoint FILE [--checkpoint-moves N] [--checkpoint-seconds S] [--resume]]
+     *              [--pipeline CAPACITY [--spin]] [--grammar FILE] [--schedule [--arms N]] [--metrics]
+     *
+     * The moves are written as text to stdout or FILE, or to a binary move log with --log, or animated on
+     * stdout at up to FPS frames a second with --animate.   A 3 tower log without a checkpoint is filled in
+     * from the move numbers with a MoveCodeKernel rather than solved.
+     *
+     * With --checkpoint the solve is checkpointed every N moves or S seconds, every 60 seconds when neither
+     * is given.   --resume carries on from the checkpoint.   The text in FILE is cut back to where the
+     * checkpoint was taken, so it ends up the same as an uninterrupted solve.   On stdout only the moves
+     * after the checkpoint are written.
+     *
+     * With --pipeline the moves are written on a thread of their own through a ring of CAPACITY moves, so
+     * the solve doesn't stop for the writes.   --spin has both threads busy wait instead of parking.
+     *
+     * With --grammar the solution is written to FILE as a SolutionGrammar instead of as moves.
+     *
+     * With --schedule the text is a MoveScheduler schedule, each step's moves after a "STEP n" line, for a rig
+     * that can make up to N moves at once.   The step count is written to stderr at the end.
+     *
+     * With --metrics the solve is counted by a SolveMetrics registered as an MBean named for the towers and
+     * disks, so its progress and ETA can be watched over JMX and its MoveBlock events recorded with JFR.
+     * The moves and time of each phase are written to stderr at the end.
+     *
+     * @return The exit code, 0 when the solve completed
+     */
+    public static int run( String[] args )
+    {
+        int towerCount;
+        int diskCount;
+        String outFile = null;
+        String logFile = null;
+        boolean frameStewart = false;
+        int framesPerSecond = 0;
+        String checkpointFile = null;
+        long checkpointMoves = 0;
+        long checkpointSeconds = 0;
+        boolean resume = false;
+        int pipelineCapacity = 0;
+        boolean spin = false;
+        String grammarFile = null;
+        boolean schedule = false;
+        int arms = 0;
+        boolean withMetrics = false;
+
+        try
+        {
+            towerCount = Integer.parseInt( args[1] );
+            diskCount = Integer.parseInt( args[2] );
+
+            for ( int i = 3; i < args.length; i++ )
+            {
+                if ( args[i].equals( "--out" ))
+                    outFile = args[++i];
+                else if ( args[i].equals( "--log" ))
+                    logFile = args[++i];
+                else if ( args[i].equals( "--animate" ))
+                    framesPerSecond = Integer.parseInt( args[++i] );
+                else if ( args[i].equals( "--frame-stewart" ))
+                    frameStewart = true;
+                else if ( args[i].equals( "--checkpoint" ))
+                    checkpointFile = args[++i];
+                else if ( args[i].equals( "--checkpoint-moves" ))
+                    checkpointMoves = Long.parseLong( args[++i] );
+                else if ( args[i].equals( "--checkpoint-seconds" ))
+                    checkpointSeconds = Long.parseLong( args[++i] );
+                else if ( args[i].equals( "--resume" ))
+                    resume = true;
+                else if ( args[i].equals( "--pipeline" ))
+                    pipelineCapacity = Integer.parseInt( args[++i] );
+                else if ( args[i].equals( "--spin" ))
+                    spin = true;
+                else if ( args[i].equals( "--grammar" ))
+                    grammarFile = args[++i];
+                else if ( args[i].equals( "--schedule" ))
+                    schedule = true;
+                else if ( args[i].equals( "--arms" ))
+                    arms = Integer.parseInt( args[++i] );
+                else if ( args[i].equals( "--metrics" ))
+                    withMetrics = true;
+                else
+                    throw new IllegalArgumentException( "Unknown option " + args[i] );
+            }
+
+            if ( towerCount < 3 || diskCount < 1 )
+                throw new IllegalArgumentException( "Need 3 or more towers and a disk" );
+            if ( resume && checkpointFile == null )
+                throw new IllegalArgumentException( "--resume needs a --checkpoint file" );
+            if ( resume && ( logFile != null || framesPerSecond > 0 || grammarFile != null ))
+                throw new IllegalArgumentException( "Only text output can be resumed" );
+            if ( schedule && ( checkpointFile != null || logFile != null || framesPerSecond > 0 || grammarFile != null ))
+                throw new IllegalArgumentException( "--schedule only writes text and can't be checkpointed" );
+            if ( arms < 0 || ( arms > 0 && !schedule ))
+                throw new IllegalArgumentException( "--arms needs --schedule and can't be negative" );
+        }
+        catch ( Exception e )
+        {
+            System.err.println( "Bad stream arguments: " + e.getMessage() );
+            System.err.println( "Usage: --stream TOWERS DISKS [--out FILE] [--log FILE] [--animate FPS] [--frame-stewart]" );
+            System.err.println( "           [--checkpoint FILE [--checkpoint-moves N] [--checkpoint-seconds S] [--resume]]" );
+            System.err.println( "           [--pipeline CAPACITY [--spin]] [--grammar FILE] [--schedule [--arms N]] [--metrics]" );
+            return 2;
+        }
+
+        Hanoi hanoi = new Hanoi( towerCount, diskCount, Hanoi.EngineType.Primitive );
+        if ( frameStewart )
+            hanoi.setSolutionMethod( Hanoi.SolutionType.FrameStewart );
+
+        if ( checkpointFile != null )
+        {
+            if ( checkpointMoves == 0 && checkpointSeconds == 0 )
+                checkpointSeconds = 60;
+            hanoi.setCheckpoint( Paths.get( checkpointFile ), checkpointMoves, checkpointSeconds * 1000 );
+        }
+
+        SolveMetrics metrics = null;
+        if ( withMetrics )
+        {
+            metrics = new SolveMetrics();
+            hanoi.setMetrics( metrics );
+            try
+            {
+                metrics.register( towerCount + "x" + diskCount );
+            }
+            catch ( JMException e )
+            {
+                System.err.println( "Failed to register the metrics: " + e.getMessage() );
+            }
+        }
+
+        PipelinedMoveSink.WaitStrategy waitStrategy = spin ? PipelinedMoveSink.WaitStrategy.Spinning
+                                                           : PipelinedMoveSink.WaitStrategy.Blocking;
+        boolean success;
+        try
+        {
+            long outputPosition = 0;
+            if ( resume )
+                outputPosition = Math.max( 0, hanoi.resume( Paths.get( checkpointFile )).getOutputPosition() );
+
+            if ( grammarFile != null )
+            {
+                SolutionGrammar grammar = hanoi.solveToGrammar();
+                success = ( grammar != null );
+
+                if ( success )
+                {
+                    try ( OutputStream out = new BufferedOutputStream( Files.newOutputStream( Paths.get( grammarFile ))))
+                    {
+                        grammar.write( out );
+                    }
+                }
+            }
+            else if ( logFile != null )
+            {
+                try ( MoveLogWriter log = new MoveLogWriter( Paths.get( logFile ), hanoi ))
+                {
+                    // The kernel makes no moves for the metrics to count
+                    if ( hanoi.getSolutionMethod() == Hanoi.SolutionType.TradionalHanoi && checkpointFile == null
+                         && metrics == null )
+                        success = writeTraditionalLog( log, diskCount );
+                    else
+                        success = solveInto( hanoi, log, pipelineCapacity, waitStrategy );
+                }
+            }
+            else if ( framesPerSecond > 0 )
+            {
+                success = solveInto( hanoi, new AnsiTowerRenderer( System.out, towerCount, diskCount, framesPerSecond ),
+                                     pipelineCapacity, waitStrategy );
+            }
+            else if ( outFile != null )
+            {
+                try ( OutputStream out = new BufferedOutputStream( openOutput( Paths.get( outFile ), resume, outputPosition )))
+                {
+                    BufferedTextMoveSink text = new BufferedTextMoveSink( out, BufferedTextMoveSink.DEFAULT_BUFFER_SIZE, outputPosition );
+                    success = schedule ? solveScheduled( hanoi, text, arms, pipelineCapacity, waitStrategy )
+                                       : solveInto( hanoi, text, pipelineCapacity, waitStrategy );
+                }
+            }
+            else
+            {
+                BufferedTextMoveSink text = new BufferedTextMoveSink( System.out, BufferedTextMoveSink.DEFAULT_BUFFER_SIZE, outputPosition );
+                success = schedule ? solveScheduled( hanoi, text, arms, pipelineCapacity, waitStrategy )
+                                   : solveInto( hanoi, text, pipelineCapacity, waitStrategy );
+            }
+        }
+        catch ( IOException e )
+        {
+            System.err.println( "Failed writing the moves: " + e.getMessage() );
+            return 1;
+        }
+        finally
+        {
+            if ( metrics != null )
+                reportMetrics( metrics );
+        }
+
+        return success ? 0 : 1;
+    }
+
+    /** Writes the moves and time of each phase to stderr and takes the metrics out of JMX */
+    private static void reportMetrics( SolveMetrics metrics )
+    {
+        System.err.println( "Moves: " + metrics.getMoveCount() + "  Expected: " + metrics.getExpectedMoves()
+                            + "  Phases: " + Arrays.toString( metrics.getPhaseNames() )
+                            + "  Phase moves: " + Arrays.toString( metrics.getPhaseMoves() )
+                            + "  Phase millis: " + Arrays.toString( metrics.getPhaseMillis() ));
+        try
+        {
+            metrics.unregister();
+        }
+        catch ( JMException e )
+        {
+            // Going away with the JVM anyway
+        }
+    }
+
+    /** Solves into the sink, through a ring to a writer thread when there is a pipeline capacity */
+    private static boolean solveInto( Hanoi hanoi, MoveSink sink, int pipelineCapacity,
+                                      PipelinedMoveSink.WaitStrategy waitStrategy )
+    {
+        if ( pipelineCapacity <= 0 )
+        {
+            hanoi.setMoveSink( sink );
+            return hanoi.solve();
+        }
+
+        try ( PipelinedMoveSink pipeline = new PipelinedMoveSink( sink, pipelineCapacity, waitStrategy ))
+        {
+            hanoi.setMoveSink( pipeline );
+            return hanoi.solve();
+        }
+    }
+
+    /** Solves through a MoveScheduler into the text and reports the step count */
+    private static boolean solveScheduled( Hanoi hanoi, BufferedTextMoveSink text, int arms, int pipelineCapacity,
+                                           PipelinedMoveSink.WaitStrategy waitStrategy )
+    {
+        MoveScheduler scheduler = new MoveScheduler( text, hanoi.getTowerCount(), arms );
+        boolean success = solveInto( hanoi, scheduler, pipelineCapacity, waitStrategy );
+
+        scheduler.flush();
+        System.err.println( "Steps: " + scheduler.getStepCount() + "  Moves: " + scheduler.getMoveCount()
+                            + "  Moves per step: " + scheduler.getMaxMovesPerStep() );
+        return success;
+    }
+
+    /**
+     * Writes the 3 tower solution into the log a buffer of move codes at a time, straight from the move
+     *   numbers with a MoveCodeKernel instead of solving.   The moves are the same ones the solve makes.
+     */
+    private static boolean writeTraditionalLog( MoveLogWriter log, int diskCount )
+    {
+        MoveCodeKernel kernel = MoveCodeKernel.create( diskCount, 1, 2, 3 );
+        byte[] codes = new byte[CODE_BUFFER_SIZE];
+
+        for ( long first = 1; first <= kernel.getMoveCount(); )
+        {
+            int count = (int)Math.min( codes.length, kernel.getMoveCount() - first + 1 );
+
+            kernel.fill( first, codes, 0, count );
+            log.writeCodes( codes, 0, count );
+            first += count;
+        }
+        return true;
+    }
+
+    /** Opens the text output, or cuts it back to where the checkpoint was taken and opens it to append */
+    private static OutputStream openOutput( Path file, boolean resume, long outputPosition ) throws IOException
+    {
+        if ( !resume )
+            return Files.newOutputStream( file );
+
+        try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.CREATE, StandardOpenOption.WRITE ))
+        {
+            if ( channel.size() < outputPosition )
+                throw new IOException( file + " is shorter than the output at the checkpoint" );
+            channel.truncate( outputPosition );
+        }
+        return Files.newOutputStream( file, StandardOpenOption.WRITE, StandardOpenOption.APPEND );
+    }
+}
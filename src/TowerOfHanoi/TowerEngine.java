@@ -0,0 +1,79 @@
+package TowerOfHanoi;
+
+/**
+ * TowerEngine:  Holds the state of the towers and disks that Hanoi moves between.   Towers are numbered
+ *    from 1 to the tower count and disks from 1 to the disk count where the id is the size of the disk.
+ *    A disk id of 0 means there is no disk.
+ */
+public interface TowerEngine
+{
+    /** @return The number of towers in the system. */
+    int getTowerCount();
+
+    /** @return The number of disks in the system. */
+    int getDiskCount();
+
+    /**
+     * Finds the count of disks on a tower.
+     * @param towerId   The tower to look at
+     * @return   The number of disks on the tower.
+     */
+    int getDiskCount( int towerId );
+
+    /** Is the tower empty based on its id
+     *
+     * @return True if the tower is empty.
+     */
+    boolean isEmpty( int towerId );
+
+    /**
+     * Used for looking at the top disk without removing it from the stack
+     *
+     * @return The id of the disk on top or 0 when the tower is empty.
+     */
+    int getTopDisk( int towerId );
+
+    /**
+     * Looks into a tower without changing it.
+     *
+     * @param towerId   The tower to look at
+     * @param index     0 is the top of the tower
+     * @return  The id of the disk at that position.
+     */
+    int getDiskAt( int towerId, int index );
+
+    /**
+     * Finds where a disk currently resides.
+     *
+     * @param diskId  The disk to look for
+     * @return  The id of the tower holding the disk.
+     */
+    int getDiskTower( int diskId );
+
+    /** Moves the top disk from one tower to the top of another.
+     *
+     * @param fromTowerId :  The top disk is taken from here.
+     * @param toTowerId :  Ends up on the top of this
+     * @return :  The id of the disk moved or 0 when the from tower is empty.
+     */
+    int moveDisk( int fromTowerId, int toTowerId );
+
+    /**
+     * Puts the disks where they are given, replacing whatever was on the towers.   The disks on each tower
+     *    are stacked by size.
+     *
+     * @param diskTower  The tower of each disk indexed by disk id.  Index 0 is unused.
+     */
+    void setConfiguration( int[] diskTower );
+
+    /**
+     * Fills in where every disk is.
+     *
+     * @param diskTower  Filled with the tower of each disk indexed by disk id.  Index 0 is unused.
+     */
+    default void getConfiguration( int[] diskTower )
+    {
+        for ( int d = 1; d <= getDiskCount(); d++ )
+            diskTower[d] = getDiskTower( d );
+    }
+}
@@ -0,0 +1,255 @@
+package TowerOfHanoi;
+
+import java.math.BigInteger;
+
+/**
+ * TraditionalHanoiIndex:  Random access into the 3 tower solution made by Hanoi.processTowerHanoi().
+ *    Moves are numbered from 1 like the iterations in processTowerHanoi().   Move k always moves disk
+ *    ( trailing zeros of k ) + 1 and each disk cycles through the three towers in a fixed direction.
+ *    The smallest disk goes to the destination first for an odd number of disks and to the working tower
+ *    first for an even number, which is the even/odd swap processTowerHanoi() does.   Disks alternate
+ *    direction going up the pile.   Both lookups are O( 1 ) per disk.
+ *
+ *    Piles of 63 or more disks have more moves than a long can count.   Their move numbers are taken as
+ *    BigIntegers, the long versions only reach the first Long.MAX_VALUE moves.
+ */
+public class TraditionalHanoiIndex
+{
+    private static final BigInteger THREE = BigInteger.valueOf( 3 );
+
+    private final int diskCount;
+    private final long moveCount;                 // Held at Long.MAX_VALUE for large piles
+    private final BigInteger exactMoveCount;
+
+    // The order each disk visits the towers in.  Disks with the same parity as the disk count use
+    //   forwardCycle, the others use backwardCycle.
+    private final int[] forwardCycle;
+    private final int[] backwardCycle;
+
+    /** Index into moving the disks from tower 1 to tower 3 using tower 2 */
+    public TraditionalHanoiIndex( int diskCount )
+    {
+        this( diskCount, 1, 2, 3 );
+    }
+
+    /**
+     * Index into the same moves processTowerHanoi( srcTower, wrkTower, dstTower ) makes with diskCount
+     *   disks on the source tower.
+     *
+     * @param diskCount  Disks on the source tower
+     * @param srcTower   Source Tower
+     * @param wrkTower   Working Tower
+     * @param dstTower   Destination Tower
+     */
+    public TraditionalHanoiIndex( int diskCount, int srcTower, int wrkTower, int dstTower )
+    {
+        if ( diskCount < 0 )
+            throw new IllegalArgumentException( "Disk count out of range: " + diskCount );
+
+        this.diskCount = diskCount;
+        this.moveCount = ( diskCount >= 63 ) ? Long.MAX_VALUE : ( 1L << diskCount ) - 1;
+        this.exactMoveCount = BigInteger.ONE.shiftLeft( diskCount ).subtract( BigInteger.ONE );
+
+        forwardCycle = new int[]{ srcTower, dstTower, wrkTower };
+        backwardCycle = new int[]{ srcTower, wrkTower, dstTower };
+    }
+
+    public int getDiskCount()
+    {
+        return diskCount;
+    }
+
+    /** @return The number of moves in the solution, 2^disks - 1, held at Long.MAX_VALUE when larger */
+    public long getMoveCount()
+    {
+        return moveCount;
+    }
+
+    /** @return The number of moves in the solution, 2^disks - 1 */
+    public BigInteger getExactMoveCount()
+    {
+        return exactMoveCount;
+    }
+
+    /**
+     * @param k  Move number from 1 to the move count
+     * @return The k-th move of the solution
+     */
+    public HanoiMove getMove( BigInteger k )
+    {
+        if ( k.signum() <= 0 || k.compareTo( exactMoveCount ) > 0 )
+            throw new IllegalArgumentException( "Move out of range: " + k );
+
+        int disk = k.getLowestSetBit() + 1;
+        int[] cycle = cycleFor( disk );
+        int priorMoves = k.shiftRight( disk ).mod( THREE ).intValue();
+
+        return new HanoiMove( disk, cycle[priorMoves], cycle[( priorMoves + 1 ) % 3] );
+    }
+
+    /**
+     * Finds the tower a disk is on after the first k moves.
+     *
+     * @param k       Number of moves made, 0 to the move count
+     * @param diskId  The disk to find
+     * @return The id of the tower holding the disk
+     */
+    public int getDiskTower( BigInteger k, int diskId )
+    {
+        if ( k.signum() < 0 || k.compareTo( exactMoveCount ) > 0 )
+            throw new IllegalArgumentException( "Move out of range: " + k );
+
+        BigInteger diskMoves = k.shiftRight( diskId - 1 ).add( BigInteger.ONE ).shiftRight( 1 );
+
+        return cycleFor( diskId )[diskMoves.mod( THREE ).intValue()];
+    }
+
+    /**
+     * Fills in the configuration of the towers after the first k moves.
+     *
+     * @param k          Number of moves made, 0 to the move count
+     * @param diskTower  Filled with the tower of each disk indexed by disk id.
+     */
+    public void getDiskTowers( BigInteger k, int[] diskTower )
+    {
+        for ( int d = 1; d <= diskCount; d++ )
+            diskTower[d] = getDiskTower( k, d );
+    }
+
+    /**
+     * @param k  Move number from 1 to the move count
+     * @return The disk moved by move k
+     */
+    public int getDisk( long k )
+    {
+        checkMove( k );
+
+        return Long.numberOfTrailingZeros( k ) + 1;
+    }
+
+    /**
+     * @param k  Move number from 1 to the move count
+     * @return The tower move k takes its disk from
+     */
+    public int getFromTower( long k )
+    {
+        int disk = getDisk( k );
+
+        return cycleFor( disk )[(int)( ( k >>> disk ) % 3 )];
+    }
+
+    /**
+     * @param k  Move number from 1 to the move count
+     * @return The tower move k puts its disk on
+     */
+    public int getToTower( long k )
+    {
+        int disk = getDisk( k );
+
+        return cycleFor( disk )[(int)( ( ( k >>> disk ) + 1 ) % 3 )];
+    }
+
+    /**
+     * @param k  Move number from 1 to the move count
+     * @return The k-th move of the solution
+     */
+    public HanoiMove getMove( long k )
+    {
+        int disk = getDisk( k );
+        int[] cycle = cycleFor( disk );
+        long priorMoves = k >>> disk;         // Times this disk has moved before move k
+
+        return new HanoiMove( disk, cycle[(int)( priorMoves % 3 )], cycle[(int)( ( priorMoves + 1 ) % 3 )] );
+    }
+
+    /**
+     * Reports a run of consecutive moves to a sink without building any move objects.
+     *
+     * @param firstMove  First move number to report, from 1
+     * @param lastMove   Last move number to report, up to the move count
+     * @param sink       Receives the moves in order
+     */
+    public void generate( long firstMove, long lastMove, MoveSink sink )
+    {
+        if ( firstMove > lastMove )
+            return;
+
+        checkMove( firstMove );
+        checkMove( lastMove );
+
+        for ( long k = firstMove; k <= lastMove; k++ )
+        {
+            int disk = Long.numberOfTrailingZeros( k ) + 1;
+            int[] cycle = cycleFor( disk );
+            int position = (int)( ( k >>> disk ) % 3 );
+
+            sink.move( disk, cycle[position], cycle[( position == 2 ) ? 0 : position + 1] );
+
+            // Stop before k wraps when the last move is the largest long
+            if ( k == Long.MAX_VALUE )
+                break;
+        }
+    }
+
+    /**
+     * Finds the tower a disk is on after the first k moves.
+     *
+     * @param k       Number of moves made, 0 to the move count
+     * @param diskId  The disk to find
+     * @return The id of the tower holding the disk
+     */
+    public int getDiskTower( long k, int diskId )
+    {
+        checkState( k );
+
+        // Disk d moves on the moves that are odd multiples of 2^(d-1).  Disks past 64 never move this early.
+        long diskMoves = ( diskId > 64 ) ? 0 : ( ( k >>> ( diskId - 1 ) ) + 1 ) >>> 1;
+
+        return cycleFor( diskId )[(int)( diskMoves % 3 )];
+    }
+
+    /**
+     * Finds the configuration of the towers after the first k moves.   The order of the disks on a tower
+     *   is always by size, so the tower of each disk is the full configuration.
+     *
+     * @param k  Number of moves made, 0 to the move count
+     * @return The tower of each disk indexed by disk id.  Index 0 is unused.
+     */
+    public int[] getDiskTowers( long k )
+    {
+        int[] diskTower = new int[diskCount + 1];
+
+        getDiskTowers( k, diskTower );
+
+        return diskTower;
+    }
+
+    /**
+     * Fills in the configuration of the towers after the first k moves.
+     *
+     * @param k          Number of moves made, 0 to the move count
+     * @param diskTower  Filled with the tower of each disk indexed by disk id.
+     */
+    public void getDiskTowers( long k, int[] diskTower )
+    {
+        for ( int d = 1; d <= diskCount; d++ )
+            diskTower[d] = getDiskTower( k, d );
+    }
+
+    private int[] cycleFor( int diskId )
+    {
+        return ( ( ( diskCount - diskId ) % 2 ) == 0 ) ? forwardCycle : backwardCycle;
+    }
+
+    private void checkMove( long k )
+    {
+        if ( k < 1 || k > moveCount )
+            throw new IllegalArgumentException( "Move out of range: " + k );
+    }
+
+    private void checkState( long k )
+    {
+        if ( k < 0 || k > moveCount )
+            throw new IllegalArgumentException( "Move out of range: " + k );
+    }
+}
@@ -0,0 +1,139 @@
+package TowerOfHanoi;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VectorMoveCodeKernel:  The MoveCodeKernel worked out a vector of moves at a time with the Vector API.
+ *    Only MoveCodeKernel.create() loads it, so the rest of the solver runs on JVMs without the
+ *    jdk.incubator.vector module.
+ *
+ *    The moves are taken in aligned windows of 2^16 so every lane works on a 16 bit offset i into its
+ *    window.   Inside a window move k = base + i moves disk ( trailing zeros of i ) + 1, found from the
+ *    exponent of i & -i as a float.   The times the disk has moved before, ( k >>> disk ), is
+ *    ( base >>> disk ) + ( i >>> disk ).   Mod 3 the first part only depends on the window and whether the
+ *    disk is odd, so it is folded into a 6 entry code table made once per window.   The second part is
+ *    under 2^15 and taken mod 3 with a multiply and shift.   The first move of a window has no bits in i
+ *    and is done on its own.
+ */
+class VectorMoveCodeKernel extends MoveCodeKernel
+{
+    private static final int WINDOW_BITS = 16;
+    private static final long WINDOW = 1L << WINDOW_BITS;
+
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final int LANES = INT_SPECIES.length();
+
+    // A byte for each int lane.  Needs at least 8 lanes, the smallest vector is 64 bits.
+    private static final VectorSpecies<Byte> BYTE_SPECIES =
+            ( LANES >= 8 ) ? VectorSpecies.of( byte.class, VectorShape.forBitSize( 8 * LANES )) : null;
+
+    private static final IntVector LANE_OFFSETS = IntVector.zero( INT_SPECIES ).addIndex( 1 );
+
+    public VectorMoveCodeKernel( int diskCount, int srcTower, int wrkTower, int dstTower )
+    {
+        super( diskCount, srcTower, wrkTower, dstTower );
+    }
+
+    public boolean isVectorized()
+    {
+        return ( BYTE_SPECIES != null );
+    }
+
+    public void fill( long firstMove, byte[] codes, int offset, int count )
+    {
+        checkRange( firstMove, codes, offset, count );
+
+        if ( BYTE_SPECIES == null )
+        {
+            fillScalar( firstMove, codes, offset, count );
+            return;
+        }
+
+        long k = firstMove;
+        int position = offset;
+        int remaining = count;
+
+        while ( remaining > 0 )
+        {
+            long windowBase = k & -WINDOW;
+            int first = (int)( k - windowBase );
+            int length = (int)Math.min( remaining, WINDOW - first );
+
+            fillWindow( windowTable( windowBase ), first, codes, position, length );
+
+            // The window's first move has no bits in i
+            if ( first == 0 )
+                codes[position] = (byte)code( windowBase );
+
+            k += length;
+            position += length;
+            remaining -= length;
+        }
+    }
+
+    /**
+     * The code for each ( disk parity, ( i >>> disk ) mod 3 ) in a window as 4 bit fields, indexed by
+     *   3 * ( disk & 1 ) + ( i >>> disk ) mod 3.
+     */
+    private int windowTable( long windowBase )
+    {
+        // base >>> disk = ( base >>> 16 ) << ( 16 - disk ), and 2^j mod 3 is 1 for even j, 2 for odd j
+        int baseMoves = (int)( ( windowBase >>> WINDOW_BITS ) % 3 );
+        int table = 0;
+
+        for ( int diskParity = 0; diskParity < 2; diskParity++ )
+        {
+            int baseShare = ( diskParity == 0 ) ? baseMoves : ( 2 * baseMoves ) % 3;
+            int cycle = ( diskCount - diskParity ) & 1;
+
+            for ( int offsetMoves = 0; offsetMoves < 3; offsetMoves++ )
+            {
+                int position = ( offsetMoves + baseShare ) % 3;
+                int code = (int)( codeTable >>> ( 4 * ( 3 * cycle + position ))) & 0xF;
+                table |= code << ( 4 * ( 3 * diskParity + offsetMoves ));
+            }
+        }
+
+        return table;
+    }
+
+    /** Fills the codes for offsets first to first + length - 1 of one window */
+    private void fillWindow( int table, int first, byte[] codes, int position, int length )
+    {
+        IntVector tableVector = IntVector.broadcast( INT_SPECIES, table );
+        int j = 0;
+
+        for ( ; j <= length - LANES; j += LANES )
+        {
+            IntVector i = LANE_OFFSETS.add( first + j );
+
+            // i & -i is an exact power of two as a float, its exponent is the trailing zero count
+            IntVector lowestBit = i.and( i.neg() );
+            IntVector disk = lowestBit.convert( VectorOperators.I2F, 0 ).reinterpretAsInts()
+                    .lanewise( VectorOperators.LSHR, 23 ).sub( 127 - 1 );
+
+            // ( i >>> disk ) mod 3, with x / 3 = ( x * 0xAAAB ) >>> 17 for x under 2^16
+            IntVector offsetMoves = i.lanewise( VectorOperators.LSHR, disk );
+            IntVector thirds = offsetMoves.mul( 0xAAAB ).lanewise( VectorOperators.LSHR, 17 );
+            offsetMoves = offsetMoves.sub( thirds.mul( 3 ));
+
+            IntVector field = disk.and( 1 ).mul( 12 ).add( offsetMoves.lanewise( VectorOperators.LSHL, 2 ));
+            IntVector code = tableVector.lanewise( VectorOperators.LSHR, field ).and( 0xF );
+
+            ( (ByteVector)code.convertShape( VectorOperators.I2B, BYTE_SPECIES, 0 )).intoArray( codes, position + j );
+        }
+
+        for ( ; j < length; j++ )
+        {
+            int i = first + j;
+            int disk = Integer.numberOfTrailingZeros( i ) + 1;
+            int field = 4 * ( 3 * ( disk & 1 ) + ( i >>> disk ) % 3 );
+
+            codes[position + j] = (byte)( ( table >>> field ) & 0xF );
+        }
+    }
+}
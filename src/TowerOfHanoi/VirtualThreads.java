@@ -0,0 +1,62 @@
+package TowerOfHanoi;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * VirtualThreads:  Gets an executor that runs each task on its own virtual thread.   Virtual threads need
+ *    Java 21, the project builds for Java 17, so the executor is looked up at run time and a fixed pool of
+ *    platform threads is used on older JVMs.
+ */
+final class VirtualThreads
+{
+    private VirtualThreads()
+    {
+    }
+
+    /** @return True when the JVM has virtual threads */
+    static boolean isAvailable()
+    {
+        return findFactory() != null;
+    }
+
+    /**
+     * @param fallbackThreads   Size of the platform thread pool used when there are no virtual threads
+     * @return An executor running each task on a new virtual thread
+     */
+    static ExecutorService newThreadPerTaskExecutor( int fallbackThreads )
+    {
+        Method factory = findFactory();
+
+        if ( factory != null )
+        {
+            try
+            {
+                return (ExecutorService)factory.invoke( null );
+            }
+            catch ( ReflectiveOperationException ignored )
+            {
+                // Fall back to platform threads
+            }
+        }
+
+        return Executors.newFixedThreadPool( fallbackThreads, task -> {
+            Thread thread = new Thread( task );
+            thread.setDaemon( true );
+            return thread;
+        } );
+    }
+
+    private static Method findFactory()
+    {
+        try
+        {
+            return Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" );
+        }
+        catch ( NoSuchMethodException e )
+        {
+            return null;
+        }
+    }
+}
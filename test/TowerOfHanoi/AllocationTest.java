@@ -0,0 +1,137 @@
+package TowerOfHanoi;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+/**
+ * AllocationTest:  Fails when the solve starts allocating per move again.   Every SolutionType is solved on
+ *    both engines, with and without metrics, into sinks that don't allocate.   The bytes the solving thread
+ *    allocates are read from the ThreadMXBean around solve() for two sizes of the same problem, so the setup
+ *    a solve does once cancels out and what is left is the allocation per extra move.   Each Hanoi is solved
+ *    once and put back to the start before the measured solve, so the lists of the list engine have already
+ *    grown to their height.
+ */
+public class AllocationTest
+{
+    // Well under one object per solve, the difference in moves is at least 20
+    private static final double MAX_BYTES_PER_MOVE = 0.01;
+
+    // Solves of each case before measuring, so the measured ones run compiled code
+    private static final int WARMUP_SOLVES = 3;
+
+    /** A problem solved at two sizes */
+    private static class Case
+    {
+        final Hanoi.SolutionType solutionType;
+        final int towers;
+        final int smallDisks;
+        final int largeDisks;
+
+        Case( Hanoi.SolutionType solutionType, int towers, int smallDisks, int largeDisks )
+        {
+            this.solutionType = solutionType;
+            this.towers = towers;
+            this.smallDisks = smallDisks;
+            this.largeDisks = largeDisks;
+        }
+    }
+
+    private static final Case[] CASES = {
+        new Case( Hanoi.SolutionType.ShiftAndStack, 200, 140, 150 ),
+        new Case( Hanoi.SolutionType.BufferUnbuffer, 100, 2000, 4000 ),
+        new Case( Hanoi.SolutionType.BufferHanoiUnbuffer, 6, 18, 26 ),
+        new Case( Hanoi.SolutionType.TradionalHanoi, 3, 16, 22 ),
+        new Case( Hanoi.SolutionType.FrameStewart, 5, 40, 80 )
+    };
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+    @BeforeAll
+    static void enableAllocationCounting()
+    {
+        assumeTrue( THREADS.isThreadAllocatedMemorySupported(), "This JVM can't measure thread allocation" );
+        THREADS.setThreadAllocatedMemoryEnabled( true );
+    }
+
+    @TestFactory
+    List<DynamicTest> solvesDoNotAllocatePerMove()
+    {
+        List<DynamicTest> tests = new ArrayList<DynamicTest>();
+
+        for ( Case c : CASES )
+        {
+            for ( Hanoi.EngineType engine : Hanoi.EngineType.values() )
+            {
+                for ( boolean metrics : new boolean[]{ false, true } )
+                {
+                    tests.add( check( c, engine, "Counting", CountingMoveSink::new, metrics ));
+                    tests.add( check( c, engine, "Text",
+                                      () -> new BufferedTextMoveSink( OutputStream.nullOutputStream() ), metrics ));
+                    tests.add( check( c, engine, "Packed",
+                                      () -> new PackedMoveSink( OutputStream.nullOutputStream(), c.towers,
+                                                                PackedMoveSink.DEFAULT_BUFFER_SIZE ), metrics ));
+                }
+            }
+        }
+        return tests;
+    }
+
+    /** A test of one case that fails when it is over the limit */
+    private static DynamicTest check( Case c, Hanoi.EngineType engine, String sinkName, Supplier<MoveSink> sinks,
+                                      boolean metrics )
+    {
+        String name = c.solutionType + " " + engine + " " + sinkName + ( metrics ? " with metrics" : "" );
+
+        return DynamicTest.dynamicTest( name, () -> {
+            for ( int i = 0; i < WARMUP_SOLVES; i++ )
+            {
+                solve( c, c.smallDisks, engine, sinks, metrics );
+                solve( c, c.largeDisks, engine, sinks, metrics );
+            }
+
+            long[] small = solve( c, c.smallDisks, engine, sinks, metrics );
+            long[] large = solve( c, c.largeDisks, engine, sinks, metrics );
+
+            long extraMoves = large[0] - small[0];
+            long extraBytes = large[1] - small[1];
+            double bytesPerMove = (double)Math.max( 0, extraBytes ) / extraMoves;
+
+            assertTrue( bytesPerMove <= MAX_BYTES_PER_MOVE, name + " allocated " + extraBytes + " bytes over "
+                                                            + extraMoves + " extra moves" );
+        } );
+    }
+
+    /** @return The moves made and the bytes the thread allocated inside the second solve() */
+    private static long[] solve( Case c, int disks, Hanoi.EngineType engine, Supplier<MoveSink> sinks,
+                                 boolean metrics )
+    {
+        Hanoi hanoi = new Hanoi( c.towers, disks, engine );
+        hanoi.setSolutionMethod( c.solutionType );
+        hanoi.setMoveSink( sinks.get() );
+        if ( metrics )
+            hanoi.setMetrics( new SolveMetrics() );
+
+        int[] start = hanoi.getConfiguration();
+        assertTrue( hanoi.solve(), c.solutionType + " failed for " + c.towers + " towers and " + disks + " disks" );
+        hanoi.setConfiguration( start );
+
+        long thread = Thread.currentThread().getId();
+        long before = THREADS.getThreadAllocatedBytes( thread );
+        boolean solved = hanoi.solve();
+        long after = THREADS.getThreadAllocatedBytes( thread );
+
+        assertTrue( solved, c.solutionType + " failed again for " + c.towers + " towers and " + disks + " disks" );
+        return new long[]{ hanoi.getMoveCount(), after - before };
+    }
+}
@@ -0,0 +1,59 @@
+package TowerOfHanoi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * ResumeMetricsTest:  A solve that is stopped part way and resumed from its checkpoint with metrics attached
+ *    reports the moves of the whole solve, so its progress ends at 1.
+ */
+public class ResumeMetricsTest
+{
+    private static final int TOWERS = 3;
+    private static final int DISKS = 20;
+    private static final long STOP_AFTER_MOVES = 700000;
+
+    /** Counts the moves and fails the solve once it has seen enough of them */
+    private static class StoppingMoveSink extends CountingMoveSink
+    {
+        @Override
+        public void move( int diskId, int fromTowerId, int toTowerId )
+        {
+            super.move( diskId, fromTowerId, toTowerId );
+            if ( getMoveCount() == STOP_AFTER_MOVES )
+                throw new IllegalStateException( "Stopped" );
+        }
+    }
+
+    @Test
+    void resumedSolveReachesFullProgress( @TempDir Path directory ) throws Exception
+    {
+        Path checkpoint = directory.resolve( "solve.checkpoint" );
+
+        Hanoi stopped = new Hanoi( TOWERS, DISKS, Hanoi.EngineType.Primitive );
+        stopped.setMoveSink( new StoppingMoveSink() );
+        stopped.setCheckpoint( checkpoint, 100000, 0 );
+        assertFalse( stopped.solve() );
+
+        Hanoi resumed = new Hanoi( TOWERS, DISKS, Hanoi.EngineType.Primitive );
+        SolveMetrics metrics = new SolveMetrics();
+        resumed.setMoveSink( new CountingMoveSink() );
+        resumed.setMetrics( metrics );
+        long resumedAt = resumed.resume( checkpoint ).getMoveCount();
+        assertTrue( resumedAt > 0 && resumedAt < STOP_AFTER_MOVES );
+
+        assertTrue( resumed.solve() );
+
+        long totalMoves = ( 1L << DISKS ) - 1;
+        assertEquals( totalMoves, resumed.getMoveCount() );
+        assertEquals( totalMoves, metrics.getExpectedMoves() );
+        assertEquals( totalMoves, metrics.getMoveCount() );
+        assertEquals( 1.0, metrics.getProgress() );
+    }
+}